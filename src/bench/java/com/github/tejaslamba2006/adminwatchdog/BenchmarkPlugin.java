@@ -0,0 +1,59 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+/**
+ * Headless AdminWatchdog for the benchmarks. Only the plugin itself is a Mockito stub; the
+ * ConfigManager, policy, templates and writers behind it are the real classes, loaded from
+ * the bundled config.yml and messages.yml.
+ */
+final class BenchmarkPlugin {
+
+    private BenchmarkPlugin() {
+    }
+
+    /**
+     * The default config.yml, to be adjusted before {@link #create(YamlConfiguration)}.
+     */
+    static YamlConfiguration defaultConfig() throws IOException {
+        try (Reader reader = new InputStreamReader(resource("config.yml"), StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        }
+    }
+
+    static AdminWatchdog create(YamlConfiguration config) throws IOException {
+        File dataFolder = Files.createTempDirectory("adminwatchdog-bench").toFile();
+        try (InputStream messages = resource("messages.yml")) {
+            Files.copy(messages, new File(dataFolder, "messages.yml").toPath());
+        }
+
+        AdminWatchdog plugin = Mockito.mock(AdminWatchdog.class);
+        PerformanceStats stats = new PerformanceStats(0);
+        Mockito.when(plugin.getConfig()).thenReturn(config);
+        Mockito.when(plugin.getDataFolder()).thenReturn(dataFolder);
+        Mockito.when(plugin.getLogger()).thenReturn(Logger.getLogger("AdminWatchdog"));
+        Mockito.when(plugin.getPerformanceStats()).thenReturn(stats);
+
+        ConfigManager configManager = new ConfigManager(plugin);
+        Mockito.when(plugin.getConfigManager()).thenReturn(configManager);
+        return plugin;
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream stream = AdminWatchdog.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null) {
+            throw new IOException(name + " not found on the classpath");
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigManager#isCommandBlacklisted} with small to very large player blacklists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class BlacklistBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private ConfigManager configManager;
+    private String blacklisted;
+
+    @Setup
+    public void setup() throws IOException {
+        YamlConfiguration config = BenchmarkPlugin.defaultConfig();
+        List<String> blacklist = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            blacklist.add("command" + i);
+        }
+        config.set("monitoring.command-blacklist.enabled", true);
+        config.set("monitoring.command-blacklist.player", blacklist);
+        configManager = BenchmarkPlugin.create(config).getConfigManager();
+
+        blacklisted = "/Command" + (entries - 1) + " some arguments";
+    }
+
+    @Benchmark
+    public boolean blacklisted() {
+        return configManager.isCommandBlacklisted(blacklisted, false);
+    }
+
+    @Benchmark
+    public boolean allowed() {
+        return configManager.isCommandBlacklisted("/gamemode creative Steve", false);
+    }
+}
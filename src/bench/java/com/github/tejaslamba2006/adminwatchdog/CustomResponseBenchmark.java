@@ -0,0 +1,67 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigManager#findMatchingCustomResponse} against configs with a growing number of
+ * custom-responses patterns, a quarter of them with wildcards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class CustomResponseBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int patterns;
+
+    private ConfigManager configManager;
+    private String wildcardHit;
+    private String literalHit;
+
+    @Setup
+    public void setup() throws IOException {
+        YamlConfiguration config = BenchmarkPlugin.defaultConfig();
+        for (int i = 0; i < patterns; i++) {
+            String pattern = i % 4 == 0 ? "cmd" + i + " user * permission set *" : "cmd" + i + " sub";
+            config.set("custom-responses.player." + pattern, "%player% used %command% at %time%");
+        }
+        configManager = BenchmarkPlugin.create(config).getConfigManager();
+
+        int last = patterns - 1;
+        wildcardHit = "/cmd0 user Steve permission set essentials.fly true";
+        literalHit = "/cmd" + (last % 4 == 0 ? last - 1 : last) + " sub extra args";
+    }
+
+    @Benchmark
+    public Map.Entry<String, String> wildcardMatch() {
+        return configManager.findMatchingCustomResponse(wildcardHit, false);
+    }
+
+    @Benchmark
+    public Map.Entry<String, String> literalMatch() {
+        return configManager.findMatchingCustomResponse(literalHit, false);
+    }
+
+    @Benchmark
+    public Map.Entry<String, String> noMatch() {
+        return configManager.findMatchingCustomResponse("/spawn", false);
+    }
+}
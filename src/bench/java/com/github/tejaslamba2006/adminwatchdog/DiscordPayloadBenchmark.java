@@ -0,0 +1,78 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discord JSON encoding: escaping a field with quotes, newlines and § colour codes (what
+ * {@code escapeJson} used to do), a full creative inventory embed built with DiscordManager's
+ * helpers, and a batched text payload as the dispatcher sends it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscordPayloadBenchmark {
+
+    private static final String LORE = "§6Legendary §lBlade\n\"Forged in the Nether\"\n§7Sharpness\tX";
+    private static final MinecraftApiHelper.ItemData ITEM_DATA = new MinecraftApiHelper.ItemData(
+            "Diamond Sword", "A sword", "https://mc.nerothe.com/img/1.21.8/diamond_sword.png", false, true);
+
+    private final JsonWriter json = new JsonWriter();
+    private final String[] lines = {
+            "👤 **Steve** executed: `/gamemode creative`",
+            "🔑 **Alex** (with permission) executed: `/lp user Steve permission set \"essentials.*\" true`",
+            "🖥️ **Console** executed: `/say §aRestarting in 5 minutes`"
+    };
+
+    @Benchmark
+    public int escapeField() {
+        return json.reset().value(LORE, 200).length();
+    }
+
+    @Benchmark
+    public int creativeInventoryEmbed() {
+        json.reset();
+        DiscordManager.beginEmbed(json, "🎨 Creative Inventory Action", 0x00d4aa, ITEM_DATA);
+        DiscordManager.boldField(json, "Player", "Steve");
+        DiscordManager.boldField(json, "Item", ITEM_DATA.name());
+        DiscordManager.boldField(json, "Amount", "1");
+        DiscordManager.field(json, "Enchantments", "Sharpness 5, Unbreaking 3, Mending 1", 1000, false);
+        DiscordManager.field(json, "Custom Name", "§6Legendary Blade", 1000, true);
+        DiscordManager.field(json, "Lore", LORE, 200, false);
+        json.endArray()
+                .name("footer").beginObject()
+                .name("text").value("2026-01-31 12:00:00 • AdminWatchdog Plugin")
+                .endObject()
+                .endObject();
+        return json.length();
+    }
+
+    @Benchmark
+    public int batchedTextPayload() {
+        json.reset().beginObject().name("content").beginString();
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                json.append("\n");
+            }
+            json.append(lines[i]);
+        }
+        json.endString()
+                .name("allowed_mentions").beginObject()
+                .name("parse").beginArray().value("users").value("roles").value("everyone").endArray()
+                .endObject()
+                .endObject();
+        return json.length();
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the text audit log as fed by {@code CommandListener.writeToLogFile}: entries
+ * are appended to the {@link AuditLogWriter} and each invocation waits until the writer thread
+ * has encoded all of them into the rolling log file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class LogWriterBenchmark {
+
+    private static final int BATCH = 4096;
+
+    private AuditLogWriter<String> writer;
+    private final String[] entries = new String[64];
+
+    @Setup
+    public void setup() throws IOException {
+        AdminWatchdog plugin = BenchmarkPlugin.create(BenchmarkPlugin.defaultConfig());
+        ConfigManager config = plugin.getConfigManager();
+        writer = new AuditLogWriter<>(plugin, "BenchWriter", new RollingLogFile(plugin, plugin.getDataFolder(),
+                config.getLogFileFormat(), config.getMaxLogFileSize(), config.getKeepOldLogs(), false),
+                AuditLogWriter.TEXT_LINES);
+        writer.start();
+
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = config.getMessage("logging.player-command", timestamp,
+                    "%prefix%", "[OP] ",
+                    "%player%", "Player" + i,
+                    "%command%", "/give Player" + i + " diamond_block 64");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        writer.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long appendAndWrite() {
+        long target = writer.getWrittenEntries() + BATCH;
+        for (int i = 0; i < BATCH; i++) {
+            // A full queue means the writer is behind; wait instead of measuring dropped entries
+            while (!writer.append(entries[i & (entries.length - 1)])) {
+                Thread.onSpinWait();
+            }
+        }
+        while (writer.getWrittenEntries() < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+}
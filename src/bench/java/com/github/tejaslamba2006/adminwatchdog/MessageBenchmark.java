@@ -0,0 +1,62 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placeholder substitution through {@link ConfigManager#getMessage(String, long, String...)},
+ * for a log line that uses %time% and a Discord line that does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class MessageBenchmark {
+
+    private ConfigManager configManager;
+    private long timestamp;
+
+    @Setup
+    public void setup() throws IOException {
+        configManager = BenchmarkPlugin.create(BenchmarkPlugin.defaultConfig()).getConfigManager();
+        timestamp = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public String playerCommandLogLine() {
+        return configManager.getMessage("logging.player-command", timestamp,
+                "%prefix%", "[OP] ",
+                "%player%", "Steve",
+                "%command%", "/lp user Alex permission set essentials.fly true");
+    }
+
+    @Benchmark
+    public String creativeDiscordLine() {
+        return configManager.getMessage("discord.creative-inventory-detailed", timestamp,
+                "%player%", "Steve",
+                "%amount%", "64",
+                "%item%", "diamond block",
+                "%material%", "DIAMOND_BLOCK");
+    }
+
+    @Benchmark
+    public String customResponse() {
+        return configManager.formatCustomResponse("⚠️ **ADMIN ACTION** - %player% used %command% at %time%",
+                timestamp,
+                "%player%", "Steve",
+                "%command%", "/ban Alex griefing");
+    }
+}
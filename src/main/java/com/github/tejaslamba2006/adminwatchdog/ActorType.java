@@ -0,0 +1,30 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+/**
+ * Why an actor is being monitored. Matches the prefixes in messages.yml.
+ */
+public enum ActorType {
+    CONSOLE("console"),
+    OP("op"),
+    PERMISSION("permission"),
+    NORMAL("normal");
+
+    private final String configName;
+
+    ActorType(String configName) {
+        this.configName = configName;
+    }
+
+    public String configName() {
+        return configName;
+    }
+
+    public static ActorType fromConfigName(String name) {
+        for (ActorType type : values()) {
+            if (type.configName.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -2,8 +2,16 @@ package com.github.tejaslamba2006.adminwatchdog;
 
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
+import org.bstats.charts.SingleLineChart;
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.net.SocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
 public final class AdminWatchdog extends JavaPlugin {
 
     private static final String COMMAND_NAME = "adminwatchdog";
@@ -11,9 +19,21 @@ public final class AdminWatchdog extends JavaPlugin {
 
     private static AdminWatchdog instance;
     private DiscordManager discordManager;
+    private HttpTransport httpTransport;
     private ConfigManager configManager;
     private UpdateChecker updateChecker;
+    private AuditLogWriter<String> auditLogWriter;
+    private AuditLogWriter<AuditEvent> eventLogWriter;
+    private AuditSearch auditSearch;
+    private AuditDatabase auditDatabase;
+    private AuditPipeline auditPipeline;
+    private AuditForwarder auditForwarder;
+    private AuditCollector auditCollector;
     private Metrics metrics;
+    private PerformanceStats performanceStats;
+    private CreativeDropTracker creativeDropTracker;
+    private CommandListener commandListener;
+    private ContainerTransferListener containerTransferListener;
 
     @Override
     public void onEnable() {
@@ -22,11 +42,49 @@ public final class AdminWatchdog extends JavaPlugin {
             saveResource("messages.yml", false);
 
             instance = this;
+            performanceStats = new PerformanceStats(getServer().getCurrentTick());
             configManager = new ConfigManager(this);
+            httpTransport = new HttpTransport();
             discordManager = new DiscordManager(this);
             updateChecker = new UpdateChecker(this);
 
-            getServer().getPluginManager().registerEvents(new CommandListener(this), this);
+            auditLogWriter = new AuditLogWriter<>(this, "AuditWriter", new RollingLogFile(this, getDataFolder(),
+                    configManager.getLogFileFormat(),
+                    configManager.getMaxLogFileSize(),
+                    configManager.getKeepOldLogs(),
+                    configManager.isCompressOldLogs()), AuditLogWriter.TEXT_LINES);
+            auditLogWriter.start();
+
+            AuditEventEncoder eventEncoder = AuditEventEncoder.forFormat(configManager.getStructuredLogFormat());
+            if (eventEncoder != null) {
+                // Binary segments stay uncompressed so /aw search can map them
+                boolean searchable = eventEncoder instanceof BinaryAuditCodec;
+                RollingLogFile eventLogFile = new RollingLogFile(this, getDataFolder(),
+                        configManager.getStructuredLogFileFormat() + eventEncoder.fileExtension(),
+                        configManager.getMaxLogFileSize(),
+                        configManager.getKeepOldLogs(),
+                        configManager.isCompressOldLogs() && !searchable);
+                if (searchable) {
+                    auditSearch = new AuditSearch(this, eventLogFile);
+                }
+                eventLogWriter = new AuditLogWriter<>(this, "EventWriter", eventLogFile, eventEncoder);
+                eventLogWriter.start();
+            }
+
+            if (configManager.isDatabaseEnabled()) {
+                auditDatabase = new AuditDatabase(this, new File(getDataFolder(), configManager.getDatabaseFile()),
+                        configManager.getDatabaseRetentionDays());
+                auditDatabase.start();
+            }
+
+            auditPipeline = new AuditPipeline(this);
+            auditPipeline.start();
+
+            creativeDropTracker = new CreativeDropTracker();
+            commandListener = new CommandListener(this);
+            getServer().getPluginManager().registerEvents(commandListener, this);
+            updateContainerTransferListener();
+            startNetwork();
 
             Commands commandHandler = new Commands(this);
             if (this.getCommand(COMMAND_NAME) != null) {
@@ -53,6 +111,55 @@ public final class AdminWatchdog extends JavaPlugin {
         }
     }
 
+    private void startNetwork() {
+        String mode = configManager.getNetworkMode();
+        if (mode.equals(ConfigManager.NETWORK_NONE)) {
+            return;
+        }
+        if (!mode.equals(ConfigManager.NETWORK_FORWARDER) && !mode.equals(ConfigManager.NETWORK_COLLECTOR)) {
+            getLogger().warning("Unknown network.mode '" + mode + "', expected none, forwarder or collector");
+            return;
+        }
+        if (configManager.getNetworkSecret().isEmpty()) {
+            getLogger().warning("network.secret must be set to use network.mode " + mode);
+            return;
+        }
+
+        SocketAddress address;
+        try {
+            address = AuditNetwork.parseAddress(configManager.getNetworkAddress());
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("Invalid network.address: " + e.getMessage());
+            return;
+        }
+
+        if (mode.equals(ConfigManager.NETWORK_FORWARDER)) {
+            auditForwarder = new AuditForwarder(this, address, configManager.getNetworkServerName(),
+                    configManager.getNetworkSecret(), configManager.getNetworkQueueCapacity());
+            auditForwarder.start();
+        } else {
+            auditCollector = new AuditCollector(this, address, configManager.getNetworkSecret(),
+                    commandListener::logForwardedEvent);
+            auditCollector.start();
+        }
+    }
+
+    /**
+     * Registers or unregisters the container transfer listener to match the config. Called on
+     * enable and after every reload.
+     */
+    public void updateContainerTransferListener() {
+        MonitoringPolicy policy = configManager.getPolicy();
+        boolean wanted = policy.creativeItemDrops() && policy.creativeDropTrackContainers();
+        if (wanted && containerTransferListener == null) {
+            containerTransferListener = new ContainerTransferListener(this, commandListener);
+            getServer().getPluginManager().registerEvents(containerTransferListener, this);
+        } else if (!wanted && containerTransferListener != null) {
+            HandlerList.unregisterAll(containerTransferListener);
+            containerTransferListener = null;
+        }
+    }
+
     private void initializeMetrics() {
         metrics = new Metrics(this, BSTATS_PLUGIN_ID);
 
@@ -67,6 +174,45 @@ public final class AdminWatchdog extends JavaPlugin {
 
         metrics.addCustomChart(new SimplePie("item_drop_tracking",
                 () -> configManager.isCreativeItemDropMonitoringEnabled() ? "Enabled" : "Disabled"));
+
+        metrics.addCustomChart(new SimplePie("main_thread_cost", this::mainThreadCostBucket));
+
+        metrics.addCustomChart(new SingleLineChart("audited_events",
+                sinceLastReport(() -> auditPipeline != null ? auditPipeline.getProcessedEvents() : 0L)));
+
+        metrics.addCustomChart(new SingleLineChart("discord_failures", sinceLastReport(() -> {
+            long failures = 0L;
+            for (DiscordDispatcher dispatcher : discordManager.getCurrentDispatchers().values()) {
+                failures += dispatcher.getFailedMessages() + dispatcher.getDroppedMessages();
+            }
+            return failures;
+        })));
+    }
+
+    private String mainThreadCostBucket() {
+        long ticks = Math.max(1, getServer().getCurrentTick() - performanceStats.getStartTick());
+        long microsPerTick = LatencyRecorder.toMicros(performanceStats.getMainThreadNanos() / ticks);
+        if (microsPerTick < 1) {
+            return "< 1 µs";
+        } else if (microsPerTick < 10) {
+            return "1-10 µs";
+        } else if (microsPerTick < 100) {
+            return "10-100 µs";
+        } else if (microsPerTick < 1000) {
+            return "100-1000 µs";
+        }
+        return "> 1 ms";
+    }
+
+    /**
+     * bStats line charts report per interval, so send the growth of a running total since the last call.
+     */
+    private static Callable<Integer> sinceLastReport(LongSupplier total) {
+        AtomicLong last = new AtomicLong();
+        return () -> {
+            long current = total.getAsLong();
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, current - last.getAndSet(current)));
+        };
     }
 
     @Override
@@ -75,6 +221,36 @@ public final class AdminWatchdog extends JavaPlugin {
             if (updateChecker != null) {
                 updateChecker.stopUpdateChecker();
             }
+            if (auditCollector != null) {
+                auditCollector.shutdown();
+            }
+            if (commandListener != null) {
+                commandListener.flushCreativeBursts();
+            }
+            if (auditPipeline != null) {
+                auditPipeline.shutdown();
+            }
+            if (auditForwarder != null) {
+                auditForwarder.shutdown();
+            }
+            if (auditLogWriter != null) {
+                auditLogWriter.shutdown();
+            }
+            if (eventLogWriter != null) {
+                eventLogWriter.shutdown();
+            }
+            if (auditDatabase != null) {
+                auditDatabase.shutdown();
+            }
+            if (auditSearch != null) {
+                auditSearch.shutdown();
+            }
+            if (discordManager != null) {
+                discordManager.shutdown();
+            }
+            if (httpTransport != null) {
+                httpTransport.shutdown();
+            }
             MinecraftApiHelper.shutdown();
             if (configManager != null) {
                 getLogger().info(configManager.getMessage("plugin.disabled"));
@@ -94,6 +270,10 @@ public final class AdminWatchdog extends JavaPlugin {
         return discordManager;
     }
 
+    public HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
     public ConfigManager getConfigManager() {
         return configManager;
     }
@@ -101,4 +281,62 @@ public final class AdminWatchdog extends JavaPlugin {
     public UpdateChecker getUpdateChecker() {
         return updateChecker;
     }
+
+    public AuditLogWriter<String> getAuditLogWriter() {
+        return auditLogWriter;
+    }
+
+    /**
+     * @return the structured event log writer, or null when logging.structured.format is none
+     */
+    public AuditLogWriter<AuditEvent> getEventLogWriter() {
+        return eventLogWriter;
+    }
+
+    /**
+     * @return the event log search, or null unless logging.structured.format is binary
+     */
+    public AuditSearch getAuditSearch() {
+        return auditSearch;
+    }
+
+    /**
+     * @return the audit database, or null unless logging.database is enabled
+     */
+    public AuditDatabase getAuditDatabase() {
+        return auditDatabase;
+    }
+
+    public AuditPipeline getAuditPipeline() {
+        return auditPipeline;
+    }
+
+    /**
+     * @return the forwarder, or null unless network.mode is forwarder
+     */
+    public AuditForwarder getAuditForwarder() {
+        return auditForwarder;
+    }
+
+    /**
+     * @return the collector, or null unless network.mode is collector
+     */
+    public AuditCollector getAuditCollector() {
+        return auditCollector;
+    }
+
+    public CommandListener getCommandListener() {
+        return commandListener;
+    }
+
+    public PerformanceStats getPerformanceStats() {
+        return performanceStats;
+    }
+
+    /**
+     * Only touched from the server thread; see {@link CreativeDropTracker}.
+     */
+    public CreativeDropTracker getCreativeDropTracker() {
+        return creativeDropTracker;
+    }
 }
\ No newline at end of file
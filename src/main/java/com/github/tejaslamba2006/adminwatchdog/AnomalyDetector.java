@@ -0,0 +1,347 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Watches the stream of audit events for patterns of admin abuse and hands each one found to the
+ * consumer given to the constructor:
+ * <ul>
+ * <li>a player running a watched command, or taking one creative material, many times faster than
+ * their own long-term rate</li>
+ * <li>a player taking a material of the critical tier from the creative inventory</li>
+ * <li>a player handing creative items (drops that others pick up, or {@code /give}) to many
+ * different players within a short window</li>
+ * </ul>
+ * Rates are kept in two {@link DecayingSketch decaying Count-Min sketches} keyed by player and
+ * command or material, one that forgets within a minute or so and one that holds the baseline over
+ * a day. Recipients are counted in a fixed table of bitmaps. Memory is the same however many
+ * players the server has seen; in exchange, counts are estimates that can run slightly high.
+ * <p>
+ * Not thread-safe. {@link CommandListener} only calls it from the audit pipeline, or from the
+ * server thread when there is no pipeline.
+ */
+public final class AnomalyDetector {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int RECIPIENT_ROWS = 2;
+    private static final int RECIPIENT_SLOTS = 1024;
+    private static final int COOLDOWN_SLOTS = 1024;
+
+    private static final long COMMAND_SALT = 0x636f6d6d616e64L;
+    private static final long MATERIAL_SALT = 0x6d6174657269616cL;
+
+    public enum Pattern {
+        COMMAND_RATE("command-rate"),
+        MATERIAL_RATE("material-rate"),
+        CRITICAL_MATERIAL("critical-material"),
+        RECIPIENTS("recipients");
+
+        private final String configName;
+
+        Pattern(String configName) {
+            this.configName = configName;
+        }
+
+        public String configName() {
+            return configName;
+        }
+    }
+
+    /**
+     * @param burstHalfLifeMillis    half-life of the recent rate
+     * @param baselineHalfLifeMillis half-life of the long-term rate the recent one is compared with
+     * @param rateMultiplier         how many times the baseline the recent rate must reach
+     * @param minEvents              recent events needed before a rate is judged at all
+     * @param minBaselineRate        events per millisecond assumed as the baseline of a player
+     *                               with little or no history
+     * @param commands               lowercase command roots watched for rate spikes; empty watches all
+     * @param criticalMaterials      material names that raise an alert whenever taken from creative
+     * @param maxRecipients          distinct recipients within the window that raise an alert
+     * @param route                  where alerts are written and sent
+     */
+    public record Settings(boolean enabled, long burstHalfLifeMillis, long baselineHalfLifeMillis,
+            double rateMultiplier, int minEvents, double minBaselineRate, Set<String> commands,
+            Set<String> criticalMaterials, int maxRecipients, long recipientWindowMillis, long cooldownMillis,
+            AuditRouter.Route route) {
+    }
+
+    /**
+     * @param subject the command root, material or, for {@link Pattern#RECIPIENTS}, null
+     * @param count   recent events, items taken or distinct recipients, depending on the pattern
+     * @param ratio   recent rate over baseline rate for the rate patterns, otherwise 0
+     */
+    public record Anomaly(Pattern pattern, long timestamp, UUID playerUuid, String playerName, String subject,
+            long count, double ratio) {
+    }
+
+    private final Consumer<Anomaly> consumer;
+    private final long[] recipientWindows = new long[RECIPIENT_ROWS * RECIPIENT_SLOTS];
+    private final long[] recipientBits = new long[RECIPIENT_ROWS * RECIPIENT_SLOTS * 2];
+    private final long[] cooldownKeys = new long[COOLDOWN_SLOTS];
+    private final long[] cooldownUntil = new long[COOLDOWN_SLOTS];
+    private DecayingSketch recent;
+    private DecayingSketch baseline;
+    private long baselineSince;
+    private volatile long anomalies;
+
+    public AnomalyDetector(Consumer<Anomaly> consumer) {
+        this.consumer = consumer;
+    }
+
+    public void accept(AuditEvent event, Settings settings) {
+        if (!settings.enabled()) {
+            return;
+        }
+
+        long player = playerHash(event.playerUuid(), event.playerName());
+        switch (event.kind()) {
+            case PLAYER_COMMAND, CONSOLE_COMMAND -> {
+                String root = AuditSegmentIndex.commandRoot(event.command());
+                if (root == null) {
+                    return;
+                }
+                if (settings.commands().isEmpty() || settings.commands().contains(root)) {
+                    checkRate(Pattern.COMMAND_RATE, event, root, mix(player ^ COMMAND_SALT, root), settings);
+                }
+                if (root.equals("give")) {
+                    String target = giveTarget(event.command());
+                    if (target != null) {
+                        checkRecipient(event.timestamp(), event.playerUuid(), event.playerName(), player,
+                                recipientHash(target), settings);
+                    }
+                }
+            }
+            case CREATIVE_INVENTORY -> {
+                String material = event.material();
+                if (material == null) {
+                    return;
+                }
+                if (settings.criticalMaterials().contains(material)) {
+                    report(Pattern.CRITICAL_MATERIAL, event.timestamp(), event.playerUuid(), event.playerName(),
+                            material, mix(player ^ MATERIAL_SALT, material), event.amount(), 0, settings);
+                }
+                checkRate(Pattern.MATERIAL_RATE, event, material, mix(player ^ MATERIAL_SALT, material), settings);
+            }
+            case CREATIVE_ITEM_PICKUP -> {
+                // The dropper hands the item to the picker
+                AuditEvent.CreativeItemPickup pickup = (AuditEvent.CreativeItemPickup) event;
+                long dropper = playerHash(pickup.dropperUuid(), pickup.dropperName());
+                if (dropper != player && pickup.playerName() != null) {
+                    checkRecipient(pickup.timestamp(), pickup.dropperUuid(), pickup.dropperName(), dropper,
+                            recipientHash(pickup.playerName()), settings);
+                }
+            }
+            default -> {
+                // Gamemode changes and drops carry no pattern of their own
+            }
+        }
+    }
+
+    /**
+     * Alerts raised since the plugin started.
+     */
+    public long getAnomalies() {
+        return anomalies;
+    }
+
+    private void checkRate(Pattern pattern, AuditEvent event, String subject, long key, Settings settings) {
+        long now = event.timestamp();
+        if (recent == null || recent.halfLifeMillis != settings.burstHalfLifeMillis()) {
+            recent = new DecayingSketch(settings.burstHalfLifeMillis());
+        }
+        if (baseline == null || baseline.halfLifeMillis != settings.baselineHalfLifeMillis()) {
+            baseline = new DecayingSketch(settings.baselineHalfLifeMillis());
+            baselineSince = now;
+        }
+
+        double recentCount = recent.add(key, now);
+        double baselineCount = baseline.add(key, now);
+        // Until the baseline has seen a half-life of events every key looks new and every burst a spike
+        if (recentCount < settings.minEvents() || now - baselineSince < settings.baselineHalfLifeMillis()) {
+            return;
+        }
+
+        // A decayed count is the rate times the mean lifetime, so rates compare as count / half-life
+        double ratio = (recentCount / settings.burstHalfLifeMillis())
+                / Math.max(baselineCount / settings.baselineHalfLifeMillis(), settings.minBaselineRate());
+        if (ratio >= settings.rateMultiplier()) {
+            report(pattern, now, event.playerUuid(), event.playerName(), subject, key, Math.round(recentCount),
+                    ratio, settings);
+        }
+    }
+
+    /**
+     * Counts the distinct recipients of one giver in the current window. Each giver hashes to one
+     * slot per row holding a 128-bit bitmap of recipients; givers that share a slot share its
+     * bitmap, so the smallest estimate of the rows wins, as in a Count-Min sketch.
+     */
+    private void checkRecipient(long timestamp, UUID giverUuid, String giverName, long giver, long recipient,
+            Settings settings) {
+        long estimate = Long.MAX_VALUE;
+        int bit = (int) (recipient >>> 57);
+        for (int row = 0; row < RECIPIENT_ROWS; row++) {
+            int slot = row * RECIPIENT_SLOTS + index(giver, row, RECIPIENT_SLOTS);
+            if (timestamp - recipientWindows[slot] > settings.recipientWindowMillis()) {
+                recipientWindows[slot] = timestamp;
+                recipientBits[slot * 2] = 0L;
+                recipientBits[slot * 2 + 1] = 0L;
+            }
+            recipientBits[slot * 2 + (bit >>> 6)] |= 1L << (bit & 63);
+            estimate = Math.min(estimate, distinct(recipientBits[slot * 2], recipientBits[slot * 2 + 1]));
+        }
+
+        if (estimate >= settings.maxRecipients()) {
+            report(Pattern.RECIPIENTS, timestamp, giverUuid, giverName, null, giver, estimate, 0, settings);
+        }
+    }
+
+    /**
+     * Linear counting: the expected number of distinct values that leave this many bits unset.
+     */
+    private static long distinct(long low, long high) {
+        int unset = 128 - Long.bitCount(low) - Long.bitCount(high);
+        if (unset == 0) {
+            return 128;
+        }
+        return Math.round(-128 * Math.log(unset / 128.0));
+    }
+
+    /**
+     * Hands the anomaly on unless the same one was reported for the player within the cooldown.
+     * Cooldowns live in a fixed table; a collision only means an alert may repeat early.
+     */
+    private void report(Pattern pattern, long timestamp, UUID playerUuid, String playerName, String subject,
+            long key, long count, double ratio, Settings settings) {
+        long cooldownKey = mix(key ^ pattern.ordinal());
+        int slot = index(cooldownKey, 0, COOLDOWN_SLOTS);
+        if (cooldownKeys[slot] == cooldownKey && timestamp < cooldownUntil[slot]) {
+            return;
+        }
+        cooldownKeys[slot] = cooldownKey;
+        cooldownUntil[slot] = timestamp + settings.cooldownMillis();
+
+        anomalies++;
+        consumer.accept(new Anomaly(pattern, timestamp, playerUuid, playerName, subject, count, ratio));
+    }
+
+    /**
+     * The player named by {@code /give <player> ...}, or null for selectors like {@code @a}.
+     */
+    private static String giveTarget(String command) {
+        int start = command.indexOf(' ');
+        if (start < 0) {
+            return null;
+        }
+        while (start < command.length() && command.charAt(start) == ' ') {
+            start++;
+        }
+        int end = command.indexOf(' ', start);
+        if (end < 0) {
+            end = command.length();
+        }
+        if (start >= end || command.charAt(start) == '@') {
+            return null;
+        }
+        return command.substring(start, end);
+    }
+
+    /**
+     * Recipients are hashed by name, the only thing {@code /give} has of them.
+     */
+    private static long recipientHash(String name) {
+        return mix(name.toLowerCase().hashCode());
+    }
+
+    private static long playerHash(UUID uuid, String name) {
+        if (uuid != null) {
+            return mix(uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32));
+        }
+        return mix(name != null ? name.hashCode() : 0);
+    }
+
+    private static long mix(long seed, String subject) {
+        return mix(seed ^ subject.hashCode() * 0x9e3779b97f4a7c15L);
+    }
+
+    /**
+     * The SplitMix64 finalizer, so nearby inputs spread across the whole table.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Column of a key in one row, derived from two halves of its hash (Kirsch-Mitzenmacher).
+     */
+    private static int index(long hash, int row, int width) {
+        int low = (int) hash;
+        int high = (int) (hash >>> 32) | 1;
+        return (low + row * high) & (width - 1);
+    }
+
+    /**
+     * A Count-Min sketch of exponentially decayed counts. Rather than decaying every cell as time
+     * passes, new events are added with a weight that grows with time since a landmark and
+     * estimates are scaled back down, which comes to the same thing. When the weights get large the
+     * cells are rescaled to a new landmark. Updates are conservative: only the cells holding the
+     * current minimum grow, which keeps collisions from inflating the counts of rare keys.
+     */
+    static final class DecayingSketch {
+
+        private static final double MAX_EXPONENT = 64.0;
+
+        private final long halfLifeMillis;
+        private final double lambda;
+        private final double[] cells = new double[SKETCH_DEPTH * SKETCH_WIDTH];
+        private long landmark = Long.MIN_VALUE;
+        private long clock;
+
+        DecayingSketch(long halfLifeMillis) {
+            this.halfLifeMillis = halfLifeMillis;
+            this.lambda = Math.log(2) / Math.max(1L, halfLifeMillis);
+        }
+
+        /**
+         * Counts one event for the key. Events of a network may arrive slightly out of order; a late
+         * one is weighted by its own time, but counts are always read at the latest time seen.
+         *
+         * @return the decayed count of the key including this event
+         */
+        double add(long key, long now) {
+            if (landmark == Long.MIN_VALUE) {
+                landmark = now;
+                clock = now;
+            } else if (now > clock) {
+                clock = now;
+                if (lambda * (now - landmark) > MAX_EXPONENT) {
+                    rescale(now);
+                }
+            }
+
+            double weight = Math.exp(lambda * (now - landmark));
+            double count = Double.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                count = Math.min(count, cells[row * SKETCH_WIDTH + index(key, row, SKETCH_WIDTH)]);
+            }
+            count += weight;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                int cell = row * SKETCH_WIDTH + index(key, row, SKETCH_WIDTH);
+                cells[cell] = Math.max(cells[cell], count);
+            }
+            return now == clock ? count / weight : count * Math.exp(-lambda * (clock - landmark));
+        }
+
+        private void rescale(long now) {
+            double factor = Math.exp(-lambda * (now - landmark));
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] *= factor;
+            }
+            landmark = now;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Receives the audit events of every {@link AuditForwarder} in the network and hands them to the
+ * audit pipeline, so this server writes the one log, event index and set of Discord messages for
+ * the whole network.
+ * <p>
+ * Each connection is served by its own thread, as a network has a handful of servers; connections
+ * are capped, and one that has not authenticated within a few seconds is closed. Only one
+ * connection per server name is accepted at a time. A batch is
+ * only acknowledged once all of its events are queued on the pipeline, and queueing waits while the
+ * pipeline is full, so a busy collector slows its forwarders down instead of losing events. The last acknowledged batch of
+ * each server is remembered with the forwarder's session, so a batch sent again after a reconnect
+ * is acknowledged without being processed twice.
+ */
+public final class AuditCollector {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 5000L;
+    private static final int MAX_CONNECTIONS = 64;
+
+    private record Session(long id, long lastBatch) {
+    }
+
+    private record Connection(SocketChannel channel, long session) {
+    }
+
+    private final AdminWatchdog plugin;
+    private final SocketAddress address;
+    private final String secret;
+    private final BiConsumer<String, AuditEvent> sink;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, Connection> servers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService handshakeTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "AdminWatchdog-Collector-Handshake");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private final AtomicLong receivedEvents = new AtomicLong();
+    private final AtomicLong duplicateBatches = new AtomicLong();
+    private final AtomicLong malformedBatches = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptThread;
+    // Only touched by the accept thread
+    private boolean atCapacity;
+
+    /**
+     * @param sink receives each forwarded event with the name of the server it came from; runs on the pipeline
+     */
+    public AuditCollector(AdminWatchdog plugin, SocketAddress address, String secret,
+            BiConsumer<String, AuditEvent> sink) {
+        this.plugin = plugin;
+        this.address = address;
+        this.secret = secret;
+        this.sink = sink;
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        try {
+            if (address instanceof UnixDomainSocketAddress socketFile) {
+                // A socket file left behind by a crash would make the bind fail
+                Files.deleteIfExists(socketFile.getPath());
+            }
+            serverChannel = ServerSocketChannel.open(AuditNetwork.protocolFamily(address));
+            serverChannel.bind(address);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to listen for forwarded audit events on " + address + ": "
+                    + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, "AdminWatchdog-Collector");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        plugin.getLogger().info("Collecting audit events from forwarders on " + address);
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. Must run before the pipeline is shut down;
+     * forwarders send the batches that were not acknowledged again once the collector is back.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to close the audit collector: " + e.getMessage());
+        }
+        for (SocketChannel connection : connections) {
+            close(connection);
+        }
+        handshakeTimer.shutdownNow();
+
+        try {
+            acceptThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            if (address instanceof UnixDomainSocketAddress socketFile) {
+                Files.deleteIfExists(socketFile.getPath());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to remove " + address + ": " + e.getMessage());
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public int getServerCount() {
+        return sessions.size();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.get();
+    }
+
+    public long getReceivedEvents() {
+        return receivedEvents.get();
+    }
+
+    public long getDuplicateBatches() {
+        return duplicateBatches.get();
+    }
+
+    public long getMalformedBatches() {
+        return malformedBatches.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel connection = serverChannel.accept();
+                if (connections.size() >= MAX_CONNECTIONS) {
+                    rejectedConnections.incrementAndGet();
+                    close(connection);
+                    if (!atCapacity) {
+                        atCapacity = true;
+                        plugin.getLogger().warning("Refusing forwarder connections, " + MAX_CONNECTIONS
+                                + " are already open");
+                    }
+                    continue;
+                }
+                atCapacity = false;
+                connections.add(connection);
+                Thread connectionThread = new Thread(() -> serve(connection),
+                        "AdminWatchdog-Collector-" + acceptedConnections.incrementAndGet());
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (AsynchronousCloseException e) {
+                return;
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to accept a forwarder connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        String server = null;
+        Connection claimed = null;
+        ScheduledFuture<?> handshakeTimeout = null;
+        try {
+            // Reads have no timeout of their own, so a peer that never authenticates is closed from outside
+            handshakeTimeout = handshakeTimer.schedule(() -> close(connection), HANDSHAKE_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(connection)));
+
+            byte[] nonce = new byte[AuditNetwork.NONCE_BYTES];
+            random.nextBytes(nonce);
+            AuditNetwork.writeHeader(out);
+            out.write(nonce);
+            out.flush();
+
+            AuditNetwork.readHeader(in);
+            String name = in.readUTF();
+            long sessionId = in.readLong();
+            byte[] signature = new byte[32];
+            in.readFully(signature);
+            if (!MessageDigest.isEqual(signature, AuditNetwork.sign(secret, nonce, name, sessionId))) {
+                rejectedConnections.incrementAndGet();
+                plugin.getLogger().warning("Rejected forwarder '" + name + "': network.secret does not match");
+                out.writeByte(AuditNetwork.STATUS_REJECTED);
+                out.writeLong(0L);
+                out.flush();
+                return;
+            }
+            if (!handshakeTimeout.cancel(false)) {
+                return;
+            }
+
+            claimed = claim(name, sessionId, connection);
+            if (claimed == null) {
+                rejectedConnections.incrementAndGet();
+                plugin.getLogger().warning("Rejected forwarder '" + name + "': another server is connected with "
+                        + "the same network.server-name");
+                out.writeByte(AuditNetwork.STATUS_DUPLICATE_SERVER);
+                out.writeLong(0L);
+                out.flush();
+                return;
+            }
+            server = name;
+
+            Session session = sessions.get(server);
+            long lastBatch = session != null && session.id() == sessionId ? session.lastBatch() : 0L;
+            out.writeByte(AuditNetwork.STATUS_OK);
+            out.writeLong(lastBatch);
+            out.flush();
+
+            while (running) {
+                long batch = in.readLong();
+                int events = in.readInt();
+                int length = in.readInt();
+                if (events < 0 || length < 0 || length > AuditNetwork.MAX_BATCH_BYTES) {
+                    throw new IOException("Invalid batch of " + events + " events in " + length + " bytes");
+                }
+                byte[] records = new byte[length];
+                in.readFully(records);
+                if (!running) {
+                    // Stopped while the batch arrived; the forwarder sends it again
+                    return;
+                }
+
+                int status = AuditNetwork.STATUS_OK;
+                if (batch <= lastBatch) {
+                    duplicateBatches.incrementAndGet();
+                } else {
+                    List<AuditEvent> decoded = decode(records, events);
+                    if (decoded == null) {
+                        // Sending it again would not help, so it is settled like a processed batch
+                        malformedBatches.incrementAndGet();
+                        plugin.getLogger().warning("Rejected batch " + batch + " from forwarder '" + server
+                                + "': its " + events + " events could not be decoded");
+                        status = AuditNetwork.STATUS_MALFORMED;
+                    } else if (!dispatch(server, decoded)) {
+                        return;
+                    }
+                    lastBatch = batch;
+                    sessions.put(server, new Session(sessionId, batch));
+                }
+
+                out.writeByte(status);
+                out.writeLong(batch);
+                out.flush();
+            }
+        } catch (AsynchronousCloseException | EOFException e) {
+            // Closed by shutdown or the handshake timeout, or the forwarder disconnected
+            if (server == null && running) {
+                rejectedConnections.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                plugin.getLogger().warning("Connection from forwarder" + (server != null ? " '" + server + "'" : "")
+                        + " failed: " + e.getMessage());
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (handshakeTimeout != null) {
+                handshakeTimeout.cancel(false);
+            }
+            if (claimed != null) {
+                servers.remove(server, claimed);
+            }
+            connections.remove(connection);
+            close(connection);
+        }
+    }
+
+    /**
+     * Registers the connection as the one for its server name. A forwarder that reconnects with the
+     * same session before its old connection was noticed as broken takes over once the old one has
+     * finished its current batch; a different session under the same name is another server.
+     *
+     * @return the registration, or null if another server holds the name
+     */
+    private Connection claim(String server, long sessionId, SocketChannel channel) throws InterruptedException {
+        Connection connection = new Connection(channel, sessionId);
+        long deadline = System.currentTimeMillis() + HANDSHAKE_TIMEOUT_MILLIS;
+        while (true) {
+            Connection existing = servers.putIfAbsent(server, connection);
+            if (existing == null) {
+                return connection;
+            }
+            if (existing.session() != sessionId || System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            close(existing.channel());
+            Thread.sleep(50L);
+        }
+    }
+
+    /**
+     * Decodes a whole batch before any of it is used, so a batch is processed completely or not at all.
+     * Records of an unknown version or kind are skipped, as in the event log.
+     *
+     * @return the events, or null if the records do not hold the announced number of intact records
+     */
+    private static List<AuditEvent> decode(byte[] records, int events) {
+        // Every record has at least its length prefix
+        if (events > records.length / Integer.BYTES) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        List<AuditEvent> decoded = new ArrayList<>(events);
+        try {
+            for (int i = 0; i < events; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return null;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                AuditEvent event = BinaryAuditCodec.decode(record);
+                if (event != null) {
+                    decoded.add(event);
+                }
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return buffer.hasRemaining() ? null : decoded;
+    }
+
+    /**
+     * Queues the events of a batch on the pipeline as one unit, waiting for room when it is full.
+     *
+     * @return false if the pipeline stopped first, in which case none of the events were queued and the
+     *         batch must not be acknowledged
+     */
+    private boolean dispatch(String server, List<AuditEvent> events) throws InterruptedException {
+        List<Runnable> tasks = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            tasks.add(() -> sink.accept(server, event));
+        }
+        if (!plugin.getAuditPipeline().submitAll(tasks, 1, TimeUnit.SECONDS)) {
+            return false;
+        }
+        receivedEvents.addAndGet(events.size());
+        return true;
+    }
+
+    private static void close(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Audit events in an embedded SQLite database, for aggregate queries like /aw top that the
+ * flat logs cannot answer cheaply.
+ * <p>
+ * Events are stored in one table per day ({@code events_yyyyMMdd}), each indexed on
+ * (player_uuid, ts) and (command_root, ts). Like {@link AuditLogWriter}, event handlers only
+ * enqueue; one writer thread inserts each batch in a single transaction using multi-row prepared
+ * inserts, and drops the tables that fall out of the retention period, which removes a day of
+ * events without the row-by-row work of a DELETE. Queries run on a separate thread with their
+ * own connection, which the database's WAL mode lets read while the writer writes.
+ * <p>
+ * Uses the SQLite JDBC driver that Paper ships.
+ */
+public final class AuditDatabase {
+
+    private static final String TABLE_PREFIX = "events_";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String COLUMNS = "ts, kind, actor_type, player_uuid, player_name, command, command_root, "
+            + "material, amount, world, x, y, z, detail";
+    private static final int COLUMN_COUNT = 14;
+    private static final String RANKED_COLUMNS = "player_uuid, player_name, command_root, material, amount";
+    private static final String LIST_PARTITIONS =
+            "SELECT name FROM sqlite_master WHERE type = 'table' AND name LIKE 'events\\_%' ESCAPE '\\'";
+    // Stays below SQLite's historical limit of 999 parameters per statement
+    private static final int ROWS_PER_STATEMENT = 64;
+    private static final long RETENTION_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    /**
+     * What /aw top ranks.
+     */
+    public enum Ranking {
+        COMMANDS("command_root", "COUNT(*)", "command_root IS NOT NULL"),
+        PLAYERS("MAX(player_name)", "COUNT(*)", "player_uuid IS NOT NULL"),
+        MATERIALS("material", "SUM(amount)", "material IS NOT NULL");
+
+        private final String label;
+        private final String score;
+        private final String filter;
+
+        Ranking(String label, String score, String filter) {
+            this.label = label;
+            this.score = score;
+            this.filter = filter;
+        }
+
+        private String groupBy() {
+            return this == PLAYERS ? "player_uuid" : label;
+        }
+    }
+
+    /**
+     * @param actorType only events by this kind of actor, or null for all
+     */
+    public record TopQuery(Ranking ranking, ActorType actorType, long since, long until, int limit) {
+    }
+
+    public record Entry(String name, long score) {
+    }
+
+    public record TopResult(List<Entry> entries, long elapsedMillis) {
+    }
+
+    private record PartitionStatements(String table, PreparedStatement rows, PreparedStatement single) {
+    }
+
+    private final AdminWatchdog plugin;
+    private final File file;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final int retentionDays;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AdminWatchdog-DatabaseQuery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // Only touched by the writer thread
+    private Connection writeConnection;
+    private PartitionStatements statements;
+    private final Set<String> partitions = new HashSet<>();
+
+    // Only touched by the query thread
+    private Connection readConnection;
+
+    public AuditDatabase(AdminWatchdog plugin, File file, int retentionDays) {
+        this.plugin = plugin;
+        this.file = file;
+        this.retentionDays = retentionDays;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.queue = new ArrayBlockingQueue<>(config.getLogWriterQueueCapacity());
+        this.batchSize = config.getLogWriterBatchSize();
+        this.flushIntervalMillis = config.getLogWriterFlushInterval();
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        try {
+            writeConnection = open();
+            try (Statement statement = writeConnection.createStatement();
+                    ResultSet tables = statement.executeQuery(LIST_PARTITIONS)) {
+                while (tables.next()) {
+                    partitions.add(tables.getString(1));
+                }
+            }
+            writeConnection.setAutoCommit(false);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to open the audit database " + file.getName() + ": " + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            closeQuietly(writeConnection);
+            return;
+        }
+
+        running = true;
+        writerThread = new Thread(this::runLoop, "AdminWatchdog-Database");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an event for the writer thread. Never blocks the caller; when the queue is full
+     * the event is dropped and counted.
+     */
+    public boolean append(AuditEvent event) {
+        if (!running || !queue.offer(event)) {
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public CompletableFuture<TopResult> top(TopQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return executeTop(query);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, queryExecutor);
+    }
+
+    /**
+     * Stops accepting events, writes everything already queued and closes the database.
+     */
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+        try {
+            if (queryExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
+                closeQuietly(readConnection);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            plugin.getLogger().warning("Audit database did not finish within " + SHUTDOWN_TIMEOUT_MILLIS
+                    + "ms, " + queue.size() + " events may be lost");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = NORMAL");
+            statement.execute("PRAGMA busy_timeout = 5000");
+        }
+        return connection;
+    }
+
+    private void runLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long nextRetention = 0L;
+
+        try {
+            while (running || !queue.isEmpty()) {
+                AuditEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (retentionDays > 0 && now >= nextRetention) {
+                    dropExpiredPartitions(now);
+                    nextRetention = now + RETENTION_INTERVAL_MILLIS;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+            closeStatements();
+            closeQuietly(writeConnection);
+        }
+    }
+
+    /**
+     * Inserts a batch in one transaction. A batch that fails is rolled back and counted as dropped,
+     * so one bad flush does not stop the writer.
+     */
+    private void write(List<AuditEvent> batch) {
+        try {
+            // Runs of events from the same day go into their partition together
+            List<String> tables = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            int start = 0;
+            while (start < batch.size()) {
+                String table = partition(batch.get(start).timestamp());
+                int end = start + 1;
+                while (end < batch.size() && partition(batch.get(end).timestamp()).equals(table)) {
+                    end++;
+                }
+                tables.add(table);
+                ends.add(end);
+                start = end;
+            }
+
+            for (String table : tables) {
+                createPartition(table);
+            }
+
+            start = 0;
+            for (int i = 0; i < tables.size(); i++) {
+                insert(tables.get(i), batch.subList(start, ends.get(i)));
+                start = ends.get(i);
+            }
+            writeConnection.commit();
+            writtenEvents.addAndGet(batch.size());
+        } catch (SQLException e) {
+            droppedEvents.addAndGet(batch.size());
+            plugin.getLogger().warning("Failed to write " + batch.size() + " events to the audit database: "
+                    + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            try {
+                writeConnection.rollback();
+            } catch (SQLException ignored) {
+                // The connection is unusable; the next batch reports the failure again
+            }
+            closeStatements();
+        }
+    }
+
+    private void insert(String table, List<AuditEvent> events) throws SQLException {
+        PartitionStatements prepared = prepare(table);
+
+        int index = 0;
+        while (events.size() - index >= ROWS_PER_STATEMENT) {
+            int parameter = 1;
+            for (int row = 0; row < ROWS_PER_STATEMENT; row++) {
+                parameter = bind(prepared.rows(), parameter, events.get(index++));
+            }
+            prepared.rows().executeUpdate();
+        }
+
+        if (index < events.size()) {
+            while (index < events.size()) {
+                bind(prepared.single(), 1, events.get(index++));
+                prepared.single().addBatch();
+            }
+            prepared.single().executeBatch();
+        }
+    }
+
+    private PartitionStatements prepare(String table) throws SQLException {
+        if (statements != null && statements.table().equals(table)) {
+            return statements;
+        }
+
+        closeStatements();
+        String row = "(" + "?, ".repeat(COLUMN_COUNT - 1) + "?)";
+        String insert = "INSERT INTO " + table + " (" + COLUMNS + ") VALUES ";
+        statements = new PartitionStatements(table,
+                writeConnection.prepareStatement(insert + (row + ", ").repeat(ROWS_PER_STATEMENT - 1) + row),
+                writeConnection.prepareStatement(insert + row));
+        return statements;
+    }
+
+    /**
+     * Creates a partition in its own transaction, before the batch that needs it, so a batch that
+     * is rolled back never leaves a table the writer believes exists.
+     */
+    private void createPartition(String table) throws SQLException {
+        if (partitions.contains(table)) {
+            return;
+        }
+
+        try (Statement statement = writeConnection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + " (ts INTEGER NOT NULL, "
+                    + "kind INTEGER NOT NULL, actor_type INTEGER NOT NULL, player_uuid TEXT, player_name TEXT, "
+                    + "command TEXT, command_root TEXT, material TEXT, amount INTEGER, world TEXT, "
+                    + "x INTEGER, y INTEGER, z INTEGER, detail TEXT)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_player ON " + table
+                    + " (player_uuid, ts)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_command ON " + table
+                    + " (command_root, ts)");
+            writeConnection.commit();
+        }
+        partitions.add(table);
+    }
+
+    /**
+     * @return the index of the next parameter
+     */
+    private static int bind(PreparedStatement statement, int parameter, AuditEvent event) throws SQLException {
+        statement.setLong(parameter++, event.timestamp());
+        statement.setInt(parameter++, event.kind().id());
+        statement.setInt(parameter++, event.actorType().ordinal());
+        statement.setString(parameter++, event.playerUuid() != null ? event.playerUuid().toString() : null);
+        statement.setString(parameter++, event.playerName());
+        statement.setString(parameter++, event.command());
+        statement.setString(parameter++, AuditSegmentIndex.commandRoot(event.command()));
+        statement.setString(parameter++, event.material());
+        if (event.item() != null) {
+            statement.setInt(parameter++, event.amount());
+        } else {
+            statement.setNull(parameter++, Types.INTEGER);
+        }
+
+        AuditLocation location = event.location();
+        statement.setString(parameter++, location != null ? location.world() : null);
+        for (int coordinate = 0; coordinate < 3; coordinate++) {
+            if (location == null) {
+                statement.setNull(parameter++, Types.INTEGER);
+            } else {
+                statement.setInt(parameter++, coordinate == 0 ? location.x() : coordinate == 1 ? location.y()
+                        : location.z());
+            }
+        }
+
+        String detail = null;
+        if (event instanceof AuditEvent.GamemodeChange change) {
+            detail = change.oldMode() + " -> " + change.newMode();
+        } else if (event instanceof AuditEvent.CreativeItemPickup pickup) {
+            detail = pickup.dropperName();
+        }
+        statement.setString(parameter++, detail);
+        return parameter;
+    }
+
+    private void dropExpiredPartitions(long now) {
+        String oldest = partition(now - TimeUnit.DAYS.toMillis(retentionDays));
+        List<String> expired = new ArrayList<>();
+        for (String table : partitions) {
+            if (table.compareTo(oldest) < 0) {
+                expired.add(table);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        try (Statement statement = writeConnection.createStatement()) {
+            for (String table : expired) {
+                if (statements != null && statements.table().equals(table)) {
+                    closeStatements();
+                }
+                statement.execute("DROP TABLE IF EXISTS " + table);
+            }
+            writeConnection.commit();
+            partitions.removeAll(expired);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to drop expired audit database partitions: " + e.getMessage());
+            try {
+                writeConnection.rollback();
+            } catch (SQLException ignored) {
+                // Retried on the next run
+            }
+        }
+    }
+
+    private TopResult executeTop(TopQuery query) throws SQLException {
+        long start = System.currentTimeMillis();
+        if (readConnection == null) {
+            readConnection = open();
+        }
+
+        List<String> tables = new ArrayList<>();
+        String first = partition(query.since());
+        String last = partition(query.until());
+        try (Statement statement = readConnection.createStatement();
+                ResultSet result = statement.executeQuery(LIST_PARTITIONS)) {
+            while (result.next()) {
+                String table = result.getString(1);
+                if (table.compareTo(first) >= 0 && table.compareTo(last) <= 0) {
+                    tables.add(table);
+                }
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        if (tables.isEmpty()) {
+            return new TopResult(entries, System.currentTimeMillis() - start);
+        }
+
+        Ranking ranking = query.ranking();
+        String where = " WHERE ts >= ? AND ts <= ? AND " + ranking.filter
+                + (query.actorType() != null ? " AND actor_type = ?" : "");
+        StringBuilder sql = new StringBuilder("SELECT ").append(ranking.label).append(", ").append(ranking.score)
+                .append(" AS score FROM (");
+        for (int i = 0; i < tables.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ").append(RANKED_COLUMNS).append(" FROM ").append(tables.get(i)).append(where);
+        }
+        sql.append(") GROUP BY ").append(ranking.groupBy()).append(" ORDER BY score DESC LIMIT ?");
+
+        try (PreparedStatement statement = readConnection.prepareStatement(sql.toString())) {
+            int parameter = 1;
+            for (int i = 0; i < tables.size(); i++) {
+                statement.setLong(parameter++, query.since());
+                statement.setLong(parameter++, query.until());
+                if (query.actorType() != null) {
+                    statement.setInt(parameter++, query.actorType().ordinal());
+                }
+            }
+            statement.setInt(parameter, query.limit());
+
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    entries.add(new Entry(result.getString(1), result.getLong(2)));
+                }
+            }
+        }
+        return new TopResult(entries, System.currentTimeMillis() - start);
+    }
+
+    private String partition(long timestamp) {
+        return TABLE_PREFIX + PARTITION_FORMAT.format(LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone));
+    }
+
+    private void closeStatements() {
+        if (statements == null) {
+            return;
+        }
+        try {
+            statements.rows().close();
+            statements.single().close();
+        } catch (SQLException ignored) {
+            // Closing only releases native resources
+        }
+        statements = null;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing left to release
+        }
+    }
+}
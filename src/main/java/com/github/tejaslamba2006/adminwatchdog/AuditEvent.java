@@ -0,0 +1,117 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.UUID;
+
+/**
+ * Typed record of one audited action. The human log, the structured log and Discord
+ * are all different renderings of these events.
+ */
+public sealed interface AuditEvent permits AuditEvent.PlayerCommand, AuditEvent.ConsoleCommand,
+        AuditEvent.GamemodeChange, AuditEvent.CreativeInventory, AuditEvent.CreativeItemDrop,
+        AuditEvent.CreativeItemPickup {
+
+    /**
+     * Epoch millis at which the action was captured.
+     */
+    long timestamp();
+
+    AuditEventKind kind();
+
+    /**
+     * UUID of the acting player, or null for the console.
+     */
+    UUID playerUuid();
+
+    String playerName();
+
+    ActorType actorType();
+
+    default String command() {
+        return null;
+    }
+
+    default ItemSnapshot item() {
+        return null;
+    }
+
+    default AuditLocation location() {
+        return null;
+    }
+
+    default String material() {
+        ItemSnapshot item = item();
+        return item != null ? item.material() : null;
+    }
+
+    default int amount() {
+        ItemSnapshot item = item();
+        return item != null ? item.amount() : 0;
+    }
+
+    record PlayerCommand(long timestamp, UUID playerUuid, String playerName, ActorType actorType,
+            String command, AuditLocation location) implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.PLAYER_COMMAND;
+        }
+    }
+
+    record ConsoleCommand(long timestamp, String playerName, String command) implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.CONSOLE_COMMAND;
+        }
+
+        @Override
+        public UUID playerUuid() {
+            return null;
+        }
+
+        @Override
+        public ActorType actorType() {
+            return ActorType.CONSOLE;
+        }
+    }
+
+    record GamemodeChange(long timestamp, UUID playerUuid, String playerName, ActorType actorType,
+            String oldMode, String newMode, AuditLocation location) implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.GAMEMODE_CHANGE;
+        }
+    }
+
+    record CreativeInventory(long timestamp, UUID playerUuid, String playerName, ActorType actorType,
+            ItemSnapshot item, AuditLocation location) implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.CREATIVE_INVENTORY;
+        }
+    }
+
+    record CreativeItemDrop(long timestamp, UUID playerUuid, String playerName, ActorType actorType,
+            ItemSnapshot item, AuditLocation location) implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.CREATIVE_ITEM_DROP;
+        }
+    }
+
+    /**
+     * The picker is the acting player; the dropper is the creative player the item came from.
+     */
+    record CreativeItemPickup(long timestamp, UUID playerUuid, String playerName, ActorType actorType,
+            UUID dropperUuid, String dropperName, ItemSnapshot item, AuditLocation location)
+            implements AuditEvent {
+
+        @Override
+        public AuditEventKind kind() {
+            return AuditEventKind.CREATIVE_ITEM_PICKUP;
+        }
+    }
+}
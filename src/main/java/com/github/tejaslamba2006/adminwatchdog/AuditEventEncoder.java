@@ -0,0 +1,28 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+/**
+ * Encoding used for the structured event log. Implementations run on a single writer thread
+ * and may keep scratch state between calls.
+ */
+public interface AuditEventEncoder extends AuditLogWriter.EntryEncoder<AuditEvent> {
+
+    /**
+     * Extension appended to logging.structured.log-file-format, e.g. ".jsonl".
+     */
+    String fileExtension();
+
+    /**
+     * @param format value of logging.structured.format
+     * @return a new encoder, or null when structured logging is disabled or the format is unknown
+     */
+    static AuditEventEncoder forFormat(String format) {
+        if (format == null) {
+            return null;
+        }
+        return switch (format.toLowerCase()) {
+            case "jsonl", "json" -> new JsonLinesAuditEncoder();
+            case "binary" -> new BinaryAuditCodec();
+            default -> null;
+        };
+    }
+}
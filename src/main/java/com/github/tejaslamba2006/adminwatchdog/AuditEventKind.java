@@ -0,0 +1,50 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+/**
+ * Kinds of audited actions. The id is part of the binary log format and must never change.
+ */
+public enum AuditEventKind {
+    PLAYER_COMMAND(1, "player-command"),
+    CONSOLE_COMMAND(2, "console-command"),
+    GAMEMODE_CHANGE(3, "gamemode-change"),
+    CREATIVE_INVENTORY(4, "creative-inventory"),
+    CREATIVE_ITEM_DROP(5, "creative-item-drop"),
+    CREATIVE_ITEM_PICKUP(6, "creative-item-pickup");
+
+    private static final AuditEventKind[] BY_ID = new AuditEventKind[16];
+
+    static {
+        for (AuditEventKind kind : values()) {
+            BY_ID[kind.id] = kind;
+        }
+    }
+
+    private final int id;
+    private final String configName;
+
+    AuditEventKind(int id, String configName) {
+        this.id = id;
+        this.configName = configName;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String configName() {
+        return configName;
+    }
+
+    public static AuditEventKind byId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    public static AuditEventKind fromConfigName(String name) {
+        for (AuditEventKind kind : values()) {
+            if (kind.configName.equalsIgnoreCase(name)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,293 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams this server's audit events to the {@link AuditCollector} of the network.
+ * <p>
+ * Event handlers only enqueue events; one thread keeps a connection to the collector open,
+ * encodes queued events into batches and sends them one at a time, waiting for each batch to be
+ * acknowledged before the next. A batch that was not acknowledged is sent again after
+ * reconnecting, and the collector drops it if it had already processed it. While the collector
+ * is slow or unreachable the queue fills up and further events are dropped and counted, so the
+ * server thread never waits on the network.
+ */
+public final class AuditForwarder {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_MILLIS = 250L;
+    private static final long MIN_BACKOFF_MILLIS = 1000L;
+    private static final long MAX_BACKOFF_MILLIS = 30_000L;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    private record Batch(long sequence, int events, byte[] records) {
+    }
+
+    private final AdminWatchdog plugin;
+    private final SocketAddress address;
+    private final String serverName;
+    private final String secret;
+    private final long session = new SecureRandom().nextLong();
+    private final BlockingQueue<AuditEvent> queue;
+    private final BinaryAuditCodec codec = new BinaryAuditCodec();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream(64 * 1024);
+    private final AtomicLong forwardedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile SocketChannel channel;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private Thread forwarderThread;
+    private boolean unreachable;
+    private Batch pending;
+    private long nextSequence = 1;
+
+    public AuditForwarder(AdminWatchdog plugin, SocketAddress address, String serverName, String secret,
+            int queueCapacity) {
+        this.plugin = plugin;
+        this.address = address;
+        this.serverName = serverName;
+        this.secret = secret;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        forwarderThread = new Thread(this::runLoop, "AdminWatchdog-Forwarder");
+        forwarderThread.setDaemon(true);
+        forwarderThread.start();
+    }
+
+    /**
+     * Queues an event for the collector. Never blocks the caller; when the queue is full
+     * the event is dropped and counted.
+     */
+    public boolean forward(AuditEvent event) {
+        if (!running || !queue.offer(event)) {
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting events and sends the queued ones if the collector can be reached within
+     * the shutdown timeout. Must run after the pipeline is shut down so its last events are sent.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            forwarderThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (forwarderThread.isAlive()) {
+            closeChannel();
+            forwarderThread.interrupt();
+            plugin.getLogger().warning("Audit forwarder did not finish within " + SHUTDOWN_TIMEOUT_MILLIS
+                    + "ms, " + queue.size() + " events were not sent to the collector");
+        }
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getForwardedEvents() {
+        return forwardedEvents.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    private void runLoop() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        try {
+            while (hasWork()) {
+                try {
+                    connect();
+                    backoff = MIN_BACKOFF_MILLIS;
+                    sendBatches();
+                } catch (IOException e) {
+                    // Warn once per outage, not on every retry
+                    if (!unreachable) {
+                        unreachable = true;
+                        String reason = e instanceof EOFException ? "connection closed" : e.getMessage();
+                        plugin.getLogger().warning("Cannot reach the audit collector at " + address + ": "
+                                + reason + ", retrying in the background");
+                        if (plugin.getConfigManager().isDebugEnabled()) {
+                            e.printStackTrace();
+                        }
+                    }
+                    reconnects.incrementAndGet();
+                    Thread.sleep(backoff);
+                    backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+                } finally {
+                    connected = false;
+                    closeChannel();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    private boolean hasWork() {
+        return running || pending != null || !queue.isEmpty();
+    }
+
+    /**
+     * Opens the connection and authenticates, then settles the batch left over from the last connection.
+     */
+    private void connect() throws IOException {
+        SocketChannel socket = SocketChannel.open(AuditNetwork.protocolFamily(address));
+        channel = socket;
+        socket.connect(address);
+
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socket)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(socket)));
+
+        AuditNetwork.readHeader(in);
+        byte[] nonce = new byte[AuditNetwork.NONCE_BYTES];
+        in.readFully(nonce);
+
+        AuditNetwork.writeHeader(out);
+        out.writeUTF(serverName);
+        out.writeLong(session);
+        out.write(AuditNetwork.sign(secret, nonce, serverName, session));
+        out.flush();
+
+        int status = in.readUnsignedByte();
+        if (status == AuditNetwork.STATUS_DUPLICATE_SERVER) {
+            throw new IOException("Another server is connected to the collector as '" + serverName
+                    + "', give each server its own network.server-name");
+        }
+        if (status != AuditNetwork.STATUS_OK) {
+            throw new IOException("The collector rejected this server, check network.secret");
+        }
+        long acknowledged = in.readLong();
+        if (pending != null && pending.sequence() <= acknowledged) {
+            // Processed before the connection broke, only the acknowledgement was lost
+            forwardedEvents.addAndGet(pending.events());
+            pending = null;
+        }
+
+        if (unreachable) {
+            unreachable = false;
+            plugin.getLogger().info("Connected to the audit collector at " + address);
+        }
+        connected = true;
+    }
+
+    /**
+     * Sends one batch at a time until the connection breaks or the forwarder is stopped and drained.
+     */
+    private void sendBatches() throws IOException {
+        List<AuditEvent> events = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            if (pending == null) {
+                AuditEvent first;
+                try {
+                    first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (first == null) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                events.add(first);
+                queue.drainTo(events, BATCH_SIZE - 1);
+                pending = encode(events);
+                events.clear();
+            }
+
+            out.writeLong(pending.sequence());
+            out.writeInt(pending.events());
+            out.writeInt(pending.records().length);
+            out.write(pending.records());
+            out.flush();
+
+            int status = in.readUnsignedByte();
+            long acknowledged = in.readLong();
+            if (acknowledged != pending.sequence()) {
+                throw new IOException("Collector acknowledged batch " + acknowledged + " instead of "
+                        + pending.sequence());
+            }
+            if (status == AuditNetwork.STATUS_MALFORMED) {
+                // The collector could not decode it, so sending it again would fail the same way
+                droppedEvents.addAndGet(pending.events());
+                plugin.getLogger().warning("The audit collector could not read batch " + pending.sequence()
+                        + ", its " + pending.events() + " events were dropped");
+            } else {
+                forwardedEvents.addAndGet(pending.events());
+            }
+            pending = null;
+        }
+    }
+
+    private Batch encode(List<AuditEvent> events) throws IOException {
+        records.reset();
+        for (AuditEvent event : events) {
+            codec.encode(event, records);
+        }
+        return new Batch(nextSequence++, events.size(), records.toByteArray());
+    }
+
+    private void closeChannel() {
+        SocketChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException ignored) {
+            // Already broken, nothing left to release
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.Location;
+
+/**
+ * Block position of an audited action.
+ */
+public record AuditLocation(String world, int x, int y, int z) {
+
+    public static AuditLocation of(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        return new AuditLocation(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    @Override
+    public String toString() {
+        return world + " " + x + "," + y + "," + z;
+    }
+}
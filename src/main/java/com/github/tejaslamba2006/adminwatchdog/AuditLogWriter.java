@@ -0,0 +1,242 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer pipeline for the audit log.
+ * Event handlers only enqueue entries; one dedicated thread owns the rolling log file,
+ * encodes and writes in batches and forces the data to disk on a fixed interval.
+ */
+public final class AuditLogWriter<T> {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Plain text lines, as used by the human readable log.
+     */
+    public static final EntryEncoder<String> TEXT_LINES = (line, out) -> {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write(LINE_SEPARATOR);
+    };
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    private final AdminWatchdog plugin;
+    private final String name;
+    private final RollingLogFile logFile;
+    private final EntryEncoder<T> encoder;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long fsyncIntervalMillis;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ScratchBuffer scratch = new ScratchBuffer();
+    private final AtomicLong writtenEntries = new AtomicLong();
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private final LatencyRecorder fileWriteLatency;
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private boolean unsynced;
+
+    public AuditLogWriter(AdminWatchdog plugin, String name, RollingLogFile logFile, EntryEncoder<T> encoder) {
+        this.plugin = plugin;
+        this.name = name;
+        this.logFile = logFile;
+        this.encoder = encoder;
+        this.fileWriteLatency = plugin.getPerformanceStats().get(PerformanceStats.Probe.FILE_WRITE);
+
+        ConfigManager config = plugin.getConfigManager();
+        this.queue = new ArrayBlockingQueue<>(config.getLogWriterQueueCapacity());
+        this.batchSize = config.getLogWriterBatchSize();
+        this.flushIntervalMillis = config.getLogWriterFlushInterval();
+        this.fsyncIntervalMillis = config.getLogWriterFsyncInterval();
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        try {
+            logFile.open();
+        } catch (IOException e) {
+            plugin.getLogger().warning(plugin.getConfigManager().getMessage("errors.log-file-creation-failed"));
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        running = true;
+        writerThread = new Thread(this::runLoop, "AdminWatchdog-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an entry for the writer thread. Never blocks the caller; when the
+     * queue is full the entry is dropped and counted.
+     */
+    public boolean append(T logEntry) {
+        if (!running || !queue.offer(logEntry)) {
+            droppedEntries.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting entries, drains everything already queued and closes the file.
+     * Called from {@link AdminWatchdog#onDisable()} so nothing is lost on shutdown.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            plugin.getLogger().warning(name + " did not finish within " + SHUTDOWN_TIMEOUT_MILLIS
+                    + "ms, " + queue.size() + " entries may be lost");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenEntries() {
+        return writtenEntries.get();
+    }
+
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    private void runLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        long lastSync = lastFlush;
+        int pending = 0;
+
+        try {
+            while (running || !queue.isEmpty()) {
+                T first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    for (T entry : batch) {
+                        encode(entry);
+                    }
+                    writtenEntries.addAndGet(batch.size());
+                    pending += batch.size();
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (first == null || pending >= batchSize || now - lastFlush >= flushIntervalMillis) {
+                    flushBuffer();
+                    pending = 0;
+                    lastFlush = now;
+                }
+                if (fsyncIntervalMillis > 0 && unsynced && now - lastSync >= fsyncIntervalMillis) {
+                    logFile.force();
+                    unsynced = false;
+                    lastSync = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            plugin.getLogger().warning(name + " failed: " + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+        } finally {
+            running = false;
+            closeLogFile();
+        }
+    }
+
+    private void encode(T entry) throws IOException {
+        scratch.reset();
+        encoder.encode(entry, scratch);
+
+        ByteBuffer encoded = scratch.view();
+        if (buffer.remaining() < encoded.remaining()) {
+            flushBuffer();
+        }
+
+        if (encoded.remaining() > buffer.capacity()) {
+            writeFully(encoded);
+            return;
+        }
+
+        buffer.put(encoded);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        long start = System.nanoTime();
+        logFile.write(source);
+        fileWriteLatency.recordSince(start);
+        unsynced = true;
+    }
+
+    private void closeLogFile() {
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to flush " + name + ": " + e.getMessage());
+        }
+        try {
+            logFile.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to close " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Turns a queued entry into the bytes written to the log file. Runs on the writer thread only.
+     */
+    @FunctionalInterface
+    public interface EntryEncoder<T> {
+        void encode(T entry, OutputStream out) throws IOException;
+    }
+
+    private static final class ScratchBuffer extends ByteArrayOutputStream {
+
+        ScratchBuffer() {
+            super(1024);
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Wire protocol between an {@link AuditForwarder} on each backend and the {@link AuditCollector}.
+ *
+ * <pre>
+ * collector -> forwarder   int magic, byte version, byte[16] nonce
+ * forwarder -> collector   int magic, byte version, utf server, long session,
+ *                          byte[32] HMAC-SHA256(secret, nonce + server + session)
+ * collector -> forwarder   byte status, long last acknowledged batch of this session
+ * forwarder -> collector   long batch, int events, int bytes, records   (repeated)
+ * collector -> forwarder   byte status, long batch                      (one per batch)
+ * </pre>
+ *
+ * Records are {@link BinaryAuditCodec} records, length prefix included. Batch numbers grow by
+ * one per batch within a session, which is a random id picked when the forwarder starts, so
+ * the collector can drop batches that are sent again after a reconnect. A batch the collector
+ * cannot decode is answered with {@link #STATUS_MALFORMED} and none of its events are used.
+ */
+public final class AuditNetwork {
+
+    public static final int MAGIC = 0x41574e54;
+    public static final int VERSION = 2;
+    public static final int NONCE_BYTES = 16;
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_REJECTED = 1;
+    public static final int STATUS_DUPLICATE_SERVER = 2;
+    public static final int STATUS_MALFORMED = 3;
+    public static final int MAX_BATCH_BYTES = 16 * 1024 * 1024;
+
+    private static final String UNIX_PREFIX = "unix:";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private AuditNetwork() {
+    }
+
+    /**
+     * @param address {@code host:port} for TCP or {@code unix:/path/to/socket} for a Unix domain socket
+     * @throws IllegalArgumentException if the address cannot be parsed
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port or unix:/path, got '" + address + "'");
+        }
+        String host = address.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return new InetSocketAddress(host, Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    public static ProtocolFamily protocolFamily(SocketAddress address) {
+        return address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET;
+    }
+
+    public static byte[] sign(String secret, byte[] nonce, String server, long session) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+            mac.update(nonce);
+            mac.update(server.getBytes(StandardCharsets.UTF_8));
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                mac.update((byte) (session >>> shift));
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an AdminWatchdog connection");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported protocol version " + version);
+        }
+    }
+}
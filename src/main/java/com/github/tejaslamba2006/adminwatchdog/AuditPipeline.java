@@ -0,0 +1,167 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Second stage of event handling. Listeners capture an immutable snapshot on the server thread
+ * and submit the rest of the work (blacklists, custom responses, message formatting, item names,
+ * routing to the log writers and Discord) here, where it runs on one worker thread in submission
+ * order.
+ */
+public final class AuditPipeline {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    private record Batch(List<Runnable> tasks) implements Runnable {
+
+        @Override
+        public void run() {
+            tasks.forEach(Runnable::run);
+        }
+    }
+
+    private final AdminWatchdog plugin;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicLong processedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread workerThread;
+
+    public AuditPipeline(AdminWatchdog plugin) {
+        this.plugin = plugin;
+        this.queue = new ArrayBlockingQueue<>(plugin.getConfigManager().getEventQueueCapacity());
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        workerThread = new Thread(this::runLoop, "AdminWatchdog-Pipeline");
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Queues work for the pipeline thread. Never blocks the caller; when the queue is full
+     * the event is dropped and counted.
+     */
+    public boolean submit(Runnable task) {
+        if (!running || !queue.offer(task)) {
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues work for the pipeline thread, waiting for room while the queue is full. Only for
+     * callers that are not the server thread and want back-pressure instead of drops, like the
+     * {@link AuditCollector}.
+     *
+     * @return false if the pipeline stopped before the task could be queued
+     */
+    public boolean submit(Runnable task, long pollInterval, TimeUnit unit) throws InterruptedException {
+        while (running) {
+            if (queue.offer(task, pollInterval, unit)) {
+                return true;
+            }
+        }
+        droppedEvents.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queues several tasks together, waiting for room like {@link #submit(Runnable, long, TimeUnit)},
+     * so either all of them run or none do. Each task still counts and fails on its own.
+     *
+     * @return false if the pipeline stopped before the tasks could be queued
+     */
+    public boolean submitAll(List<Runnable> tasks, long pollInterval, TimeUnit unit) throws InterruptedException {
+        Batch batch = new Batch(tasks);
+        while (running) {
+            if (queue.offer(batch, pollInterval, unit)) {
+                return true;
+            }
+        }
+        droppedEvents.addAndGet(tasks.size());
+        return false;
+    }
+
+    /**
+     * Stops accepting events and finishes the ones already queued. Must run before the
+     * log writers and Discord are shut down so those events still reach them.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            workerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (workerThread.isAlive()) {
+            plugin.getLogger().warning("Event pipeline did not finish within " + SHUTDOWN_TIMEOUT_MILLIS
+                    + "ms, " + queue.size() + " events may be lost");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public long getFailedEvents() {
+        return failedEvents.get();
+    }
+
+    private void runLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Runnable task = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    process(task);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Runnable task) {
+        if (task instanceof Batch batch) {
+            for (Runnable member : batch.tasks()) {
+                process(member);
+            }
+            return;
+        }
+
+        try {
+            task.run();
+            processedEvents.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedEvents.incrementAndGet();
+            plugin.getLogger().warning("Failed to process audit event: " + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
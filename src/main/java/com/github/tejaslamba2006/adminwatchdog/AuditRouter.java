@@ -0,0 +1,210 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.permissions.Permissible;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Decides which outputs receive each audited event: the log file, the default Discord webhook
+ * and the named webhooks under {@code discord.webhooks}.
+ * <p>
+ * The rules in {@code routing.rules} are compiled on load into a table indexed by event kind and
+ * actor type that holds the candidate rules in config order. Routing an event is an array lookup
+ * plus a check of each candidate's permission bits against the bits cached in the player's
+ * {@link PlayerProfileCache.PlayerProfile profile}; the first match wins. Events no rule matches
+ * go to the file and the default webhook as before. {@code logging.file-logging} and
+ * {@code discord.enabled} stay master switches for every route.
+ */
+public final class AuditRouter {
+
+    public static final String DEFAULT_WEBHOOK = "default";
+    public static final String FILE_SINK = "file";
+    public static final String DISCORD_SINK = "discord";
+
+    /**
+     * Permission bits of an actor that holds every permission, i.e. the console.
+     */
+    public static final long ALL_PERMISSIONS = -1L;
+
+    private static final int ACTOR_TYPES = ActorType.values().length;
+    private static final String[] NO_WEBHOOKS = new String[0];
+
+    /**
+     * Where one event goes. The webhook array is shared and must not be modified.
+     */
+    public record Route(boolean file, String[] webhooks) {
+
+        public boolean discord() {
+            return webhooks.length > 0;
+        }
+
+        public Route withoutDiscord() {
+            return webhooks.length == 0 ? this : new Route(file, NO_WEBHOOKS);
+        }
+    }
+
+    private record Rule(long permissionMask, Route route) {
+    }
+
+    private final Rule[][] table;
+    private final Route fallback;
+    private final String[] permissions;
+
+    private AuditRouter(Rule[][] table, Route fallback, String[] permissions) {
+        this.table = table;
+        this.fallback = fallback;
+        this.permissions = permissions;
+    }
+
+    /**
+     * @param rules         the {@code routing.rules} list; each rule has {@code events}, optional
+     *                      {@code actors} and {@code permission}, and {@code sinks}
+     * @param webhookNames  names configured under {@code discord.webhooks}
+     */
+    public static AuditRouter compile(List<Map<?, ?>> rules, boolean fileLogging, boolean discordEnabled,
+            Set<String> webhookNames, Logger logger) {
+        Route fallback = new Route(fileLogging, discordEnabled ? new String[]{DEFAULT_WEBHOOK} : NO_WEBHOOKS);
+
+        Map<String, Integer> permissionBits = new LinkedHashMap<>();
+        List<List<Rule>> candidates = new ArrayList<>();
+        for (int i = 0; i < AuditEventKind.values().length * ACTOR_TYPES; i++) {
+            candidates.add(new ArrayList<>());
+        }
+
+        for (int index = 0; index < rules.size(); index++) {
+            String ruleName = "routing rule " + (index + 1);
+            Map<?, ?> rule = rules.get(index);
+
+            List<String> kindNames = names(rule.get("events"));
+            Set<AuditEventKind> kinds = kindNames.isEmpty()
+                    ? EnumSet.allOf(AuditEventKind.class) : EnumSet.noneOf(AuditEventKind.class);
+            for (String name : kindNames) {
+                AuditEventKind kind = AuditEventKind.fromConfigName(name);
+                if (kind == null) {
+                    logger.warning("Unknown event '" + name + "' in " + ruleName);
+                } else {
+                    kinds.add(kind);
+                }
+            }
+
+            List<String> actorNames = names(rule.get("actors"));
+            Set<ActorType> actors = actorNames.isEmpty()
+                    ? EnumSet.allOf(ActorType.class) : EnumSet.noneOf(ActorType.class);
+            for (String name : actorNames) {
+                ActorType actor = ActorType.fromConfigName(name);
+                if (actor == null) {
+                    logger.warning("Unknown actor '" + name + "' in " + ruleName);
+                } else {
+                    actors.add(actor);
+                }
+            }
+            if (kinds.isEmpty() || actors.isEmpty()) {
+                logger.warning("Ignoring " + ruleName + ": it matches no events");
+                continue;
+            }
+
+            long permissionMask = 0L;
+            Object permission = rule.get("permission");
+            if (permission != null) {
+                Integer bit = permissionBits.get(permission.toString());
+                if (bit == null && permissionBits.size() == Long.SIZE) {
+                    logger.warning("Ignoring " + ruleName + ": rules can use at most " + Long.SIZE + " permissions");
+                    continue;
+                }
+                if (bit == null) {
+                    bit = permissionBits.size();
+                    permissionBits.put(permission.toString(), bit);
+                }
+                permissionMask = 1L << bit;
+            }
+
+            Rule compiled = new Rule(permissionMask, compileSinks(names(rule.get("sinks")), fileLogging,
+                    discordEnabled, webhookNames, logger, ruleName));
+            for (AuditEventKind kind : kinds) {
+                for (ActorType actor : actors) {
+                    candidates.get(kind.ordinal() * ACTOR_TYPES + actor.ordinal()).add(compiled);
+                }
+            }
+        }
+
+        Rule[][] table = new Rule[candidates.size()][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = candidates.get(i).toArray(new Rule[0]);
+        }
+        return new AuditRouter(table, fallback, permissionBits.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Compiles a list of sinks ({@code file}, {@code discord} or {@code discord:<name>}) into a route,
+     * also for outputs configured outside the rules such as anomaly alerts.
+     *
+     * @param context where the sinks are configured, for warnings
+     */
+    public static Route compileSinks(List<String> sinks, boolean fileLogging, boolean discordEnabled,
+            Set<String> webhookNames, Logger logger, String context) {
+        boolean file = false;
+        Set<String> webhooks = new LinkedHashSet<>();
+        for (String sink : sinks) {
+            if (sink.equalsIgnoreCase(FILE_SINK)) {
+                file = true;
+            } else if (sink.equalsIgnoreCase(DISCORD_SINK)) {
+                webhooks.add(DEFAULT_WEBHOOK);
+            } else if (sink.regionMatches(true, 0, DISCORD_SINK + ":", 0, DISCORD_SINK.length() + 1)
+                    && webhookNames.contains(sink.substring(DISCORD_SINK.length() + 1))) {
+                webhooks.add(sink.substring(DISCORD_SINK.length() + 1));
+            } else {
+                logger.warning("Unknown sink '" + sink + "' in " + context);
+            }
+        }
+        return new Route(file && fileLogging, discordEnabled ? webhooks.toArray(new String[0]) : NO_WEBHOOKS);
+    }
+
+    /**
+     * Values of a rule entry that may be a single string or a list; "*" and a missing entry mean any.
+     */
+    private static List<String> names(Object value) {
+        List<String> names = new ArrayList<>();
+        if (value instanceof Collection<?> values) {
+            for (Object element : values) {
+                names.add(element.toString());
+            }
+        } else if (value != null) {
+            names.add(value.toString());
+        }
+        names.removeIf(name -> name.equals("*"));
+        return names;
+    }
+
+    /**
+     * @param permissionBits the actor's {@link #permissionBits(Permissible)}
+     */
+    public Route route(AuditEventKind kind, ActorType actorType, long permissionBits) {
+        for (Rule rule : table[kind.ordinal() * ACTOR_TYPES + actorType.ordinal()]) {
+            if ((rule.permissionMask() & permissionBits) == rule.permissionMask()) {
+                return rule.route();
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Which of the permissions used by rules {@code permissible} holds, one bit per permission.
+     */
+    public long permissionBits(Permissible permissible) {
+        long bits = 0L;
+        for (int i = 0; i < permissions.length; i++) {
+            if (permissible.hasPermission(permissions[i])) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+}
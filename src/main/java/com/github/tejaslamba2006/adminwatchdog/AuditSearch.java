@@ -0,0 +1,290 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers /aw search queries from the binary event log.
+ * Rotated segments are looked up through their {@link AuditSegmentIndex}; only the active
+ * segment is scanned. Every query runs on a dedicated search thread.
+ */
+public final class AuditSearch {
+
+    private static final int INDEX_CACHE_SIZE = 64;
+    private static final long RELEASE_TIMEOUT_SECONDS = 10L;
+
+    private final AdminWatchdog plugin;
+    private final RollingLogFile eventLog;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AdminWatchdog-Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched by the search thread
+    private final Map<File, AuditSegmentIndex> indexCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, AuditSegmentIndex> eldest) {
+            if (size() <= INDEX_CACHE_SIZE) {
+                return false;
+            }
+            eldest.getValue().close();
+            return true;
+        }
+    };
+
+    public AuditSearch(AdminWatchdog plugin, RollingLogFile eventLog) {
+        this.plugin = plugin;
+        this.eventLog = eventLog;
+        eventLog.setRotationListener(this::indexSegment);
+        eventLog.setRemovalListener(this::releaseSegment);
+    }
+
+    public enum Field {
+        PLAYER, COMMAND, MATERIAL
+    }
+
+    /**
+     * @param playerUuid resolved UUID for {@link Field#PLAYER} queries, otherwise null
+     */
+    public record Query(Field field, String value, UUID playerUuid, long since, long until, int limit) {
+    }
+
+    /**
+     * @param events     the most recent matches, oldest first
+     * @param totalFound number of matches that were read before the limit was reached
+     */
+    public record Result(List<AuditEvent> events, int totalFound, long elapsedMillis) {
+    }
+
+    public CompletableFuture<Result> search(Query query) {
+        return CompletableFuture.supplyAsync(() -> execute(query), executor);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                indexCache.values().forEach(AuditSegmentIndex::close);
+                indexCache.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds the index for a freshly rotated segment. Runs on the log housekeeping thread.
+     */
+    private void indexSegment(File segment) {
+        try {
+            AuditSegmentIndex.build(segment);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to index " + segment.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the cached index of a segment that is about to be deleted. Runs on the log housekeeping
+     * thread and waits for the search in progress, so nothing maps the segment when it is deleted.
+     */
+    private void releaseSegment(File segment) {
+        try {
+            executor.submit(() -> {
+                AuditSegmentIndex index = indexCache.remove(segment);
+                if (index != null) {
+                    index.close();
+                }
+            }).get(RELEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            // The delete may fail where mapped files cannot be deleted; pruning tries again after the next rotation
+        }
+    }
+
+    private Result execute(Query query) {
+        long started = System.nanoTime();
+        List<AuditEvent> matches = new ArrayList<>();
+        File active = eventLog.getActiveFile();
+
+        for (File segment : eventLog.listSegments()) {
+            if (matches.size() >= query.limit()) {
+                break;
+            }
+
+            try {
+                if (segment.equals(active)) {
+                    scanSegment(segment, query, matches);
+                } else {
+                    searchIndexedSegment(segment, query, matches);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to search " + segment.getName() + ": " + e.getMessage());
+            }
+        }
+
+        int total = matches.size();
+        matches.sort(Comparator.comparingLong(AuditEvent::timestamp));
+        List<AuditEvent> latest = total > query.limit()
+                ? new ArrayList<>(matches.subList(total - query.limit(), total))
+                : matches;
+
+        return new Result(latest, total, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void scanSegment(File segment, Query query, List<AuditEvent> matches) throws IOException {
+        if (!segment.exists() || segment.length() == 0) {
+            return;
+        }
+
+        try (BinaryAuditReader reader = new BinaryAuditReader(segment)) {
+            reader.forEach((offset, event) -> {
+                if (event.timestamp() >= query.since() && event.timestamp() <= query.until()
+                        && matches(event, query)) {
+                    matches.add(event);
+                }
+                return true;
+            });
+        }
+    }
+
+    private void searchIndexedSegment(File segment, Query query, List<AuditEvent> matches) throws IOException {
+        AuditSegmentIndex index = loadIndex(segment);
+        if (!index.overlaps(query.since(), query.until())) {
+            return;
+        }
+
+        int[] offsets = switch (query.field()) {
+            case PLAYER -> index.findByPlayer(query.playerUuid(), query.since(), query.until());
+            case COMMAND -> index.findByCommand(query.value(), query.since(), query.until());
+            case MATERIAL -> index.findByMaterial(query.value(), query.since(), query.until());
+        };
+        if (offsets.length == 0) {
+            return;
+        }
+
+        try (BinaryAuditReader reader = new BinaryAuditReader(segment)) {
+            for (int offset : offsets) {
+                AuditEvent event = reader.readAt(offset);
+                if (event != null && matches(event, query)) {
+                    matches.add(event);
+                }
+            }
+        }
+    }
+
+    private AuditSegmentIndex loadIndex(File segment) throws IOException {
+        AuditSegmentIndex cached = indexCache.get(segment);
+        if (cached != null) {
+            if (cached.getSegmentSize() == segment.length()) {
+                return cached;
+            }
+            // Unmapped before the index file is rebuilt over it
+            indexCache.remove(segment);
+            cached.close();
+        }
+
+        AuditSegmentIndex index = null;
+        File indexFile = AuditSegmentIndex.indexFileFor(segment);
+        if (indexFile.exists()) {
+            try {
+                index = AuditSegmentIndex.open(indexFile);
+            } catch (IOException e) {
+                index = null;
+            }
+        }
+
+        if (index != null && index.getSegmentSize() != segment.length()) {
+            index.close();
+            index = null;
+        }
+        if (index == null) {
+            index = AuditSegmentIndex.open(AuditSegmentIndex.build(segment));
+        }
+        indexCache.put(segment, index);
+        return index;
+    }
+
+    private static boolean matches(AuditEvent event, Query query) {
+        return switch (query.field()) {
+            case PLAYER -> query.playerUuid().equals(event.playerUuid())
+                    || (event instanceof AuditEvent.CreativeItemPickup pickup
+                            && query.playerUuid().equals(pickup.dropperUuid()));
+            case COMMAND -> query.value().equals(AuditSegmentIndex.commandRoot(event.command()));
+            case MATERIAL -> query.value().equalsIgnoreCase(event.material());
+        };
+    }
+
+    /**
+     * Short description of an event for search output.
+     */
+    public static String describe(AuditEvent event) {
+        return switch (event) {
+            case AuditEvent.PlayerCommand command -> command.command();
+            case AuditEvent.ConsoleCommand command -> "/" + command.command();
+            case AuditEvent.GamemodeChange change -> "gamemode " + change.oldMode() + " -> " + change.newMode();
+            case AuditEvent.CreativeInventory creative -> "took " + creative.amount() + "x "
+                    + creative.item().displayName() + " from creative";
+            case AuditEvent.CreativeItemDrop drop -> "dropped " + drop.amount() + "x " + drop.item().displayName();
+            case AuditEvent.CreativeItemPickup pickup -> "picked up " + pickup.amount() + "x "
+                    + pickup.item().displayName() + " dropped by " + pickup.dropperName();
+        };
+    }
+
+    /**
+     * Parses a search bound: a duration back from now ("30m", "6h", "2d", "1w"),
+     * a date ("2026-01-31") or a date and time ("2026-01-31T18:00").
+     *
+     * @return epoch millis, or -1 if the value could not be parsed
+     */
+    public static long parseTime(String value, long now) {
+        if (value.isEmpty()) {
+            return -1L;
+        }
+        if (value.equalsIgnoreCase("now")) {
+            return now;
+        }
+
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        String amount = value.substring(0, value.length() - 1);
+        if (!amount.isEmpty() && amount.chars().allMatch(Character::isDigit)) {
+            long number = Long.parseLong(amount);
+            long millis = switch (unit) {
+                case 's' -> TimeUnit.SECONDS.toMillis(number);
+                case 'm' -> TimeUnit.MINUTES.toMillis(number);
+                case 'h' -> TimeUnit.HOURS.toMillis(number);
+                case 'd' -> TimeUnit.DAYS.toMillis(number);
+                case 'w' -> TimeUnit.DAYS.toMillis(number * 7);
+                default -> -1L;
+            };
+            return millis < 0 ? -1L : now - millis;
+        }
+
+        try {
+            if (value.contains("T")) {
+                return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1L;
+        }
+    }
+}
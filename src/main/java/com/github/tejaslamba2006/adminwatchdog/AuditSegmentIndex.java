@@ -0,0 +1,440 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Sidecar index for one binary event log segment, stored as {@code <segment>.idx}.
+ *
+ * <pre>
+ * header    magic, version, indexed segment size, record count, min/max timestamp, dictionary sizes
+ * times     record count x long timestamp (ascending), record count x int segment offset
+ * players   entries of (uuid msb, uuid lsb, posting start, posting length), sorted by uuid
+ * commands  entries of (command root hash, posting start, posting length), sorted by hash
+ * materials entries of (material hash, posting start, posting length), sorted by hash
+ * postings  int positions into the times section, ascending per list
+ * </pre>
+ *
+ * The index is memory-mapped read-only; a lookup is a binary search in a dictionary followed by
+ * a binary search on timestamps inside the posting list, so no record outside the requested
+ * key and time range is decoded. The mapping is held until {@link #close()}, which must not run
+ * while another thread still uses the index.
+ */
+public final class AuditSegmentIndex implements Closeable {
+
+    public static final String FILE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x41574958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final int PLAYER_ENTRY_SIZE = 8 + 8 + 4 + 4;
+    private static final int HASH_ENTRY_SIZE = 8 + 4 + 4;
+
+    private final MappedByteBuffer mapped;
+    private final long segmentSize;
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int playerCount;
+    private final int commandCount;
+    private final int materialCount;
+    private final int timesOffset;
+    private final int offsetsOffset;
+    private final int playersOffset;
+    private final int commandsOffset;
+    private final int materialsOffset;
+    private final int postingsOffset;
+    private boolean closed;
+
+    private AuditSegmentIndex(MappedByteBuffer mapped) throws IOException {
+        this.mapped = mapped;
+        if (mapped.limit() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            throw new IOException("Not an AdminWatchdog segment index");
+        }
+
+        this.segmentSize = mapped.getLong(8);
+        this.count = mapped.getInt(16);
+        this.minTimestamp = mapped.getLong(20);
+        this.maxTimestamp = mapped.getLong(28);
+        this.playerCount = mapped.getInt(36);
+        this.commandCount = mapped.getInt(40);
+        this.materialCount = mapped.getInt(44);
+
+        this.timesOffset = HEADER_SIZE;
+        this.offsetsOffset = timesOffset + count * 8;
+        this.playersOffset = offsetsOffset + count * 4;
+        this.commandsOffset = playersOffset + playerCount * PLAYER_ENTRY_SIZE;
+        this.materialsOffset = commandsOffset + commandCount * HASH_ENTRY_SIZE;
+        this.postingsOffset = materialsOffset + materialCount * HASH_ENTRY_SIZE;
+    }
+
+    public static File indexFileFor(File segment) {
+        return new File(segment.getParentFile(), segment.getName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Maps an existing index.
+     */
+    public static AuditSegmentIndex open(File indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new AuditSegmentIndex(mapped);
+            } catch (IOException e) {
+                MappedBuffers.unmap(mapped);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Scans a segment and writes its index next to it. The index is written to a temporary
+     * file and moved into place, so readers never see a partial index.
+     */
+    public static File build(File segment) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        Map<UUID, List<Integer>> players = new HashMap<>();
+        Map<Long, List<Integer>> commands = new HashMap<>();
+        Map<Long, List<Integer>> materials = new HashMap<>();
+        long indexedSize;
+
+        try (BinaryAuditReader reader = new BinaryAuditReader(segment)) {
+            indexedSize = reader.size();
+            List<AuditEvent> events = new ArrayList<>();
+            reader.forEach((offset, event) -> {
+                entries.add(new long[] { event.timestamp(), offset, events.size() });
+                events.add(event);
+                return true;
+            });
+
+            // Records are appended in capture order, but sort anyway so a clock step cannot break lookups
+            entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+            for (int position = 0; position < entries.size(); position++) {
+                AuditEvent event = events.get((int) entries.get(position)[2]);
+                addPosting(players, event.playerUuid(), position);
+                if (event instanceof AuditEvent.CreativeItemPickup pickup
+                        && !Objects.equals(pickup.dropperUuid(), event.playerUuid())) {
+                    // A dropper without a UUID has no posting; addPosting skips the null key
+                    addPosting(players, pickup.dropperUuid(), position);
+                }
+                String root = commandRoot(event.command());
+                if (root != null) {
+                    addPosting(commands, hash(root), position);
+                }
+                if (event.material() != null) {
+                    addPosting(materials, hash(event.material().toLowerCase()), position);
+                }
+            }
+        }
+
+        int postingTotal = countPostings(players) + countPostings(commands) + countPostings(materials);
+        int size = HEADER_SIZE + entries.size() * 12 + players.size() * PLAYER_ENTRY_SIZE
+                + (commands.size() + materials.size()) * HASH_ENTRY_SIZE + postingTotal * 4;
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putLong(indexedSize).putInt(entries.size());
+        out.putLong(entries.isEmpty() ? 0L : entries.get(0)[0]);
+        out.putLong(entries.isEmpty() ? 0L : entries.get(entries.size() - 1)[0]);
+        out.putInt(players.size()).putInt(commands.size()).putInt(materials.size());
+
+        for (long[] entry : entries) {
+            out.putLong(entry[0]);
+        }
+        for (long[] entry : entries) {
+            out.putInt((int) entry[1]);
+        }
+
+        int postingCursor = 0;
+        List<List<Integer>> postingLists = new ArrayList<>();
+
+        UUID[] uuids = players.keySet().toArray(new UUID[0]);
+        Arrays.sort(uuids, AuditSegmentIndex::compareUuid);
+        for (UUID uuid : uuids) {
+            List<Integer> postings = players.get(uuid);
+            out.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+            out.putInt(postingCursor).putInt(postings.size());
+            postingCursor += postings.size();
+            postingLists.add(postings);
+        }
+        postingCursor = writeHashDictionary(out, commands, postingCursor, postingLists);
+        writeHashDictionary(out, materials, postingCursor, postingLists);
+
+        for (List<Integer> postings : postingLists) {
+            for (int position : postings) {
+                out.putInt(position);
+            }
+        }
+        out.flip();
+
+        File indexFile = indexFileFor(segment);
+        File temp = new File(segment.getParentFile(), indexFile.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return indexFile;
+    }
+
+    /**
+     * Number of segment bytes covered by this index; a different segment size means the index is stale.
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public boolean overlaps(long since, long until) {
+        return count > 0 && maxTimestamp >= since && minTimestamp <= until;
+    }
+
+    /**
+     * Segment offsets of all records in the time range, in time order.
+     */
+    public int[] findAll(long since, long until) {
+        checkOpen();
+        int from = lowerBound(since);
+        int to = upperBound(until);
+        int[] result = new int[Math.max(0, to - from)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsetAt(from + i);
+        }
+        return result;
+    }
+
+    public int[] findByPlayer(UUID uuid, long since, long until) {
+        checkOpen();
+        int low = 0;
+        int high = playerCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = playersOffset + mid * PLAYER_ENTRY_SIZE;
+            int cmp = compareUuid(mapped.getLong(entry), mapped.getLong(entry + 8), uuid);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return postingsInRange(mapped.getInt(entry + 16), mapped.getInt(entry + 20), since, until);
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Candidates for a command root. Hashes can collide, so callers re-check the decoded record.
+     */
+    public int[] findByCommand(String root, long since, long until) {
+        checkOpen();
+        return findByHash(commandsOffset, commandCount, hash(root), since, until);
+    }
+
+    /**
+     * Candidates for a material. Hashes can collide, so callers re-check the decoded record.
+     */
+    public int[] findByMaterial(String material, long since, long until) {
+        checkOpen();
+        return findByHash(materialsOffset, materialCount, hash(material.toLowerCase()), since, until);
+    }
+
+    /**
+     * Unmaps the index so its file can be deleted.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            MappedBuffers.unmap(mapped);
+        }
+    }
+
+    // Reading an unmapped buffer would crash the JVM instead of throwing
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Segment index is closed");
+        }
+    }
+
+    /**
+     * First word of a command, lowercased, without the leading slash or a namespace
+     * ("/minecraft:give Steve diamond" gives "give").
+     */
+    public static String commandRoot(String command) {
+        if (command == null) {
+            return null;
+        }
+
+        int start = 0;
+        while (start < command.length() && (command.charAt(start) == '/' || command.charAt(start) == ' ')) {
+            start++;
+        }
+        int end = command.indexOf(' ', start);
+        if (end < 0) {
+            end = command.length();
+        }
+        if (start >= end) {
+            return null;
+        }
+
+        String root = command.substring(start, end).toLowerCase();
+        int colon = root.indexOf(':');
+        return colon >= 0 && colon < root.length() - 1 ? root.substring(colon + 1) : root;
+    }
+
+    private int[] findByHash(int dictionaryOffset, int entries, long key, long since, long until) {
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = dictionaryOffset + mid * HASH_ENTRY_SIZE;
+            long value = mapped.getLong(entry);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return postingsInRange(mapped.getInt(entry + 8), mapped.getInt(entry + 12), since, until);
+            }
+        }
+        return new int[0];
+    }
+
+    private int[] postingsInRange(int start, int length, long since, long until) {
+        int base = postingsOffset + start * 4;
+
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mapped.getInt(base + mid * 4)) < since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int from = low;
+        high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mapped.getInt(base + mid * 4)) <= until) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int[] result = new int[low - from];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsetAt(mapped.getInt(base + (from + i) * 4));
+        }
+        return result;
+    }
+
+    private int lowerBound(long since) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) < since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long until) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) <= until) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long timestampAt(int position) {
+        return mapped.getLong(timesOffset + position * 8);
+    }
+
+    private int offsetAt(int position) {
+        return mapped.getInt(offsetsOffset + position * 4);
+    }
+
+    private static <K> void addPosting(Map<K, List<Integer>> postings, K key, int position) {
+        if (key != null) {
+            postings.computeIfAbsent(key, k -> new ArrayList<>()).add(position);
+        }
+    }
+
+    private static int countPostings(Map<?, List<Integer>> postings) {
+        int total = 0;
+        for (List<Integer> list : postings.values()) {
+            total += list.size();
+        }
+        return total;
+    }
+
+    private static int writeHashDictionary(ByteBuffer out, Map<Long, List<Integer>> dictionary, int postingCursor,
+            List<List<Integer>> postingLists) {
+        long[] keys = new long[dictionary.size()];
+        int i = 0;
+        for (long key : dictionary.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+
+        for (long key : keys) {
+            List<Integer> postings = dictionary.get(key);
+            out.putLong(key).putInt(postingCursor).putInt(postings.size());
+            postingCursor += postings.size();
+            postingLists.add(postings);
+        }
+        return postingCursor;
+    }
+
+    private static int compareUuid(UUID a, UUID b) {
+        return compareUuid(a.getMostSignificantBits(), a.getLeastSignificantBits(), b);
+    }
+
+    private static int compareUuid(long most, long least, UUID uuid) {
+        int cmp = Long.compare(most, uuid.getMostSignificantBits());
+        return cmp != 0 ? cmp : Long.compare(least, uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * 64-bit FNV-1a.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Length-prefixed binary encoding of {@link AuditEvent}s.
+ *
+ * <pre>
+ * int    length of the record body
+ * byte   format version
+ * byte   event kind id
+ * byte   actor type
+ * long   timestamp (epoch millis)
+ * uuid   player (presence byte + two longs)
+ * string player name, string command
+ * item   presence byte, material, amount, display name, custom name, enchantments, lore
+ * loc    presence byte, world, x, y, z
+ * ...    kind specific fields (gamemodes, dropper)
+ * </pre>
+ *
+ * Strings are a signed short byte length (-1 for null) followed by UTF-8.
+ * The encoder keeps a scratch buffer and must only be used by one thread.
+ */
+public final class BinaryAuditCodec implements AuditEventEncoder {
+
+    public static final int FORMAT_VERSION = 1;
+    public static final String FILE_EXTENSION = ".awlog";
+
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+    private static final ActorType[] ACTOR_TYPES = ActorType.values();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+    private final DataOutputStream data = new DataOutputStream(body);
+
+    @Override
+    public String fileExtension() {
+        return FILE_EXTENSION;
+    }
+
+    @Override
+    public void encode(AuditEvent event, OutputStream out) throws IOException {
+        body.reset();
+        writeBody(event, data);
+        data.flush();
+
+        int length = body.size();
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        body.writeTo(out);
+    }
+
+    private static void writeBody(AuditEvent event, DataOutputStream out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(event.kind().id());
+        out.writeByte(event.actorType().ordinal());
+        out.writeLong(event.timestamp());
+        writeUuid(out, event.playerUuid());
+        writeString(out, event.playerName());
+        writeString(out, event.command());
+
+        ItemSnapshot item = event.item();
+        out.writeBoolean(item != null);
+        if (item != null) {
+            writeString(out, item.material());
+            out.writeInt(item.amount());
+            writeString(out, item.displayName());
+            writeString(out, item.customName());
+            writeString(out, item.enchantments());
+            out.writeShort(item.lore().size());
+            for (String line : item.lore()) {
+                writeString(out, line);
+            }
+        }
+
+        AuditLocation location = event.location();
+        out.writeBoolean(location != null);
+        if (location != null) {
+            writeString(out, location.world());
+            out.writeInt(location.x());
+            out.writeInt(location.y());
+            out.writeInt(location.z());
+        }
+
+        if (event instanceof AuditEvent.GamemodeChange change) {
+            writeString(out, change.oldMode());
+            writeString(out, change.newMode());
+        } else if (event instanceof AuditEvent.CreativeItemPickup pickup) {
+            writeUuid(out, pickup.dropperUuid());
+            writeString(out, pickup.dropperName());
+        }
+    }
+
+    /**
+     * Decodes one record body. The buffer must be positioned just after the length prefix
+     * and is left positioned after the record body.
+     *
+     * @return the event, or null if the record has an unknown version or kind
+     */
+    public static AuditEvent decode(ByteBuffer in) {
+        int version = in.get();
+        if (version != FORMAT_VERSION) {
+            return null;
+        }
+
+        AuditEventKind kind = AuditEventKind.byId(in.get());
+        int actorOrdinal = in.get();
+        ActorType actorType = actorOrdinal >= 0 && actorOrdinal < ACTOR_TYPES.length
+                ? ACTOR_TYPES[actorOrdinal]
+                : ActorType.NORMAL;
+        long timestamp = in.getLong();
+        UUID playerUuid = readUuid(in);
+        String playerName = readString(in);
+        String command = readString(in);
+
+        ItemSnapshot item = null;
+        if (in.get() != 0) {
+            String material = readString(in);
+            int amount = in.getInt();
+            String displayName = readString(in);
+            String customName = readString(in);
+            String enchantments = readString(in);
+            int loreLines = in.getShort();
+            List<String> lore = new ArrayList<>(loreLines);
+            for (int i = 0; i < loreLines; i++) {
+                lore.add(readString(in));
+            }
+            item = new ItemSnapshot(material, amount, displayName, customName, enchantments, lore);
+        }
+
+        AuditLocation location = null;
+        if (in.get() != 0) {
+            location = new AuditLocation(readString(in), in.getInt(), in.getInt(), in.getInt());
+        }
+
+        if (kind == null) {
+            return null;
+        }
+
+        return switch (kind) {
+            case PLAYER_COMMAND -> new AuditEvent.PlayerCommand(timestamp, playerUuid, playerName, actorType,
+                    command, location);
+            case CONSOLE_COMMAND -> new AuditEvent.ConsoleCommand(timestamp, playerName, command);
+            case GAMEMODE_CHANGE -> new AuditEvent.GamemodeChange(timestamp, playerUuid, playerName, actorType,
+                    readString(in), readString(in), location);
+            case CREATIVE_INVENTORY -> new AuditEvent.CreativeInventory(timestamp, playerUuid, playerName,
+                    actorType, item, location);
+            case CREATIVE_ITEM_DROP -> new AuditEvent.CreativeItemDrop(timestamp, playerUuid, playerName,
+                    actorType, item, location);
+            case CREATIVE_ITEM_PICKUP -> new AuditEvent.CreativeItemPickup(timestamp, playerUuid, playerName,
+                    actorType, readUuid(in), readString(in), item, location);
+        };
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    static UUID readUuid(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
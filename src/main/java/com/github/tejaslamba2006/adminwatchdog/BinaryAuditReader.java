@@ -0,0 +1,114 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary event log segment through a read-only memory mapping.
+ * Records are only decoded when visited, so scanning or seeking a segment does not
+ * copy the file onto the heap. A partially written trailing record is ignored. Closing the
+ * reader unmaps the segment, so it can be deleted right away.
+ */
+public final class BinaryAuditReader implements Closeable {
+
+    private static final int LENGTH_PREFIX = Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private boolean closed;
+
+    public BinaryAuditReader(File segment) throws IOException {
+        this.channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ);
+        try {
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Size of the mapped region in bytes.
+     */
+    public int size() {
+        return mapped.limit();
+    }
+
+    /**
+     * Decodes the record starting at the given byte offset.
+     *
+     * @return the event, or null if the offset does not hold a complete, known record
+     */
+    public AuditEvent readAt(int offset) {
+        checkOpen();
+        ByteBuffer view = mapped.duplicate();
+        if (offset < 0 || offset + LENGTH_PREFIX > view.limit()) {
+            return null;
+        }
+
+        int length = view.getInt(offset);
+        int end = offset + LENGTH_PREFIX + length;
+        if (length <= 0 || end > view.limit()) {
+            return null;
+        }
+
+        view.position(offset + LENGTH_PREFIX).limit(end);
+        try {
+            return BinaryAuditCodec.decode(view);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Visits every complete record in file order.
+     */
+    public void forEach(RecordVisitor visitor) {
+        checkOpen();
+        int offset = 0;
+        int limit = mapped.limit();
+        while (offset + LENGTH_PREFIX <= limit) {
+            int length = mapped.getInt(offset);
+            if (length <= 0 || offset + LENGTH_PREFIX + length > limit) {
+                break;
+            }
+
+            AuditEvent event = readAt(offset);
+            if (event != null && !visitor.visit(offset, event)) {
+                return;
+            }
+            offset += LENGTH_PREFIX + length;
+        }
+    }
+
+    // Reading an unmapped buffer would crash the JVM instead of throwing
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Reader is closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        MappedBuffers.unmap(mapped);
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * @return false to stop iterating
+         */
+        boolean visit(int offset, AuditEvent event);
+    }
+}
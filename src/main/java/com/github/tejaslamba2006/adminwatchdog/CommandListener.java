@@ -12,349 +12,517 @@ import org.bukkit.event.inventory.InventoryCreativeEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.ServerCommandEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class CommandListener implements Listener {
 
-    private static final String TIME_PLACEHOLDER = "%time%";
     private static final String PLAYER_PLACEHOLDER = "%player%";
     private static final String COMMAND_PLACEHOLDER = "%command%";
+    private static final int MAX_BURST_MATERIALS = 8;
 
-    private final File logFile;
     private final AdminWatchdog plugin;
+    private final PerformanceStats stats;
 
-    private final Map<UUID, DroppedItemInfo> trackedCreativeDrops = new ConcurrentHashMap<>();
+    private final CreativeDropTracker creativeDrops;
+    private final ItemProvenance provenance;
+    private final CreativeBurstAggregator<PlayerSnapshot> creativeBursts =
+            new CreativeBurstAggregator<>(this::reportCreativeBurst);
+    private final PlayerProfileCache profiles = new PlayerProfileCache();
+    private final AnomalyDetector anomalies = new AnomalyDetector(this::reportAnomaly);
 
     public CommandListener(AdminWatchdog plugin) {
         this.plugin = plugin;
-        File dataFolder = plugin.getDataFolder();
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
-        }
-
-        logFile = new File(dataFolder, "commands.log");
-        try {
-            if (!logFile.exists()) {
-                boolean created = logFile.createNewFile();
-                if (!created) {
-                    plugin.getLogger().warning(plugin.getConfigManager().getMessage("errors.log-file-creation-failed"));
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        this.stats = plugin.getPerformanceStats();
+        this.creativeDrops = plugin.getCreativeDropTracker();
+        this.provenance = new ItemProvenance(plugin);
+        startDropExpiryTask();
+        startBurstFlushTask();
+    }
 
-        startDropCleanupTask();
+    /**
+     * Drops are also expired whenever one is tracked or picked up; this only keeps an idle
+     * tracker from holding on to old entries. Runs on the server thread like the tracker's other users.
+     */
+    private void startDropExpiryTask() {
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> creativeDrops.expire(System.currentTimeMillis(),
+                plugin.getConfigManager().getPolicy().creativeDropTrackingMillis()), 20L * 60, 20L * 60);
     }
 
-    private void startDropCleanupTask() {
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            long now = System.currentTimeMillis();
-            int trackingDuration = plugin.getConfigManager().getCreativeItemDropTrackingDuration();
-            long expiryTime = TimeUnit.SECONDS.toMillis(trackingDuration);
+    /**
+     * Closes creative bursts once their player stops grabbing. The flush runs where the
+     * aggregator lives, on the audit pipeline.
+     */
+    private void startBurstFlushTask() {
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            if (creativeBursts.openBursts() > 0) {
+                submit(() -> creativeBursts.flushIdle(System.currentTimeMillis(),
+                        plugin.getConfigManager().getPolicy()));
+            }
+        }, 20L, 20L);
+    }
 
-            trackedCreativeDrops.entrySet().removeIf(entry -> (now - entry.getValue().dropTime()) > expiryTime);
-        }, 20L * 60, 20L * 60);
+    /**
+     * Reports open creative bursts right away, e.g. before the plugin shuts down its pipeline.
+     */
+    public void flushCreativeBursts() {
+        submit(creativeBursts::flushAll);
     }
 
-    @EventHandler
-    public void onGamemodeChange(PlayerGameModeChangeEvent event) {
-        if (!plugin.getConfigManager().isGamemodeMonitoringEnabled()) {
+    /**
+     * Logs an event forwarded by another server of the network as if it had happened here. That server
+     * already applied its monitoring settings and blacklists; routing uses the actor type only, as
+     * permissions of remote players are not known here. Runs on the audit pipeline.
+     */
+    public void logForwardedEvent(String server, AuditEvent event) {
+        MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+        if (event instanceof AuditEvent.ConsoleCommand console) {
+            logConsoleCommand(server, console.playerName(), console.command(), console.timestamp(), policy);
             return;
         }
 
-        Player player = event.getPlayer();
+        ActorType actorType = event.actorType();
+        PlayerProfileCache.PlayerProfile profile = new PlayerProfileCache.PlayerProfile(policy,
+                actorType == ActorType.OP, actorType == ActorType.PERMISSION,
+                false, false, false, false, 0L, 0L);
+        PlayerSnapshot actor = new PlayerSnapshot(event.playerUuid(), event.playerName(), server, profile,
+                event.location());
 
-        if (player.hasPermission("adminwatchdog.bypass.gamemode")) {
+        if (event instanceof AuditEvent.PlayerCommand command) {
+            MonitoringResult result = new MonitoringResult();
+            result.shouldLog = true;
+            result.actorType = actorType;
+            result.hasSpecialPermission = actorType == ActorType.PERMISSION;
+            result.prefix = policy.prefix(actorType);
+            logPlayerCommand(actor, command.command(), command.timestamp(), result);
             return;
         }
+        if (event instanceof AuditEvent.GamemodeChange change) {
+            logGamemodeChange(actor, change.oldMode(), change.newMode(), change.timestamp());
+            return;
+        }
+
+        // Forwarded items only keep their snapshot, so they are rebuilt from material and amount
+        // and classified by this server's material tiers
+        ItemStack item = toItemStack(event.item());
+        MaterialWatchlist.Tier tier = item != null ? policy.creativeWatchlist().tier(item.getType()) : null;
+        if (item == null) {
+            recordEvent(event);
+        } else if (tier == MaterialWatchlist.Tier.IGNORE) {
+            return;
+        } else if (event instanceof AuditEvent.CreativeInventory) {
+            logCreativeInventoryAction(actor, item, event.timestamp(), tier);
+        } else if (event instanceof AuditEvent.CreativeItemDrop) {
+            logCreativeItemDrop(actor, item, event.timestamp());
+        } else if (event instanceof AuditEvent.CreativeItemPickup pickup) {
+            CreativeDropTracker.TrackedDrop drop = new CreativeDropTracker.TrackedDrop(pickup.dropperUuid(),
+                    pickup.dropperName(), item.getType(), item.getAmount(), 0, pickup.timestamp());
+            ItemProvenance.Origin origin = new ItemProvenance.Origin(pickup.dropperUuid(), pickup.dropperName(),
+                    pickup.timestamp(), 0);
+            logCreativeItemPickup(actor, drop, origin, item, pickup.timestamp());
+        }
+    }
+
+    /**
+     * @return null if this server does not know the material
+     */
+    private static ItemStack toItemStack(ItemSnapshot snapshot) {
+        Material material = snapshot != null ? Material.matchMaterial(snapshot.material()) : null;
+        return material != null ? new ItemStack(material, Math.max(1, snapshot.amount())) : null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        long start = System.nanoTime();
+        try {
+            profiles.invalidate(event.getPlayer().getUniqueId());
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.PLAYER_SESSION, start);
+        }
+    }
 
-        String playerName = player.getName();
-        GameMode newMode = event.getNewGameMode();
-        GameMode oldMode = player.getGameMode();
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        long start = System.nanoTime();
+        try {
+            profiles.invalidate(event.getPlayer().getUniqueId());
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.PLAYER_SESSION, start);
+        }
+    }
 
-        boolean shouldLog = plugin.getConfigManager().isOpsMonitoringEnabled() && player.isOp();
+    @EventHandler
+    public void onGamemodeChange(PlayerGameModeChangeEvent event) {
+        long start = System.nanoTime();
+        try {
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.gamemodeMonitoring()) {
+                return;
+            }
 
-        if (plugin.getConfigManager().isPermissionMonitoringEnabled()) {
-            List<String> monitoredPerms = plugin.getConfigManager().getMonitoredPermissions();
-            for (String perm : monitoredPerms) {
-                if (player.hasPermission(perm)) {
-                    shouldLog = true;
-                    break;
-                }
+            Player player = event.getPlayer();
+            PlayerProfileCache.PlayerProfile profile = profiles.get(player, policy);
+
+            if (profile.bypassGamemode() || !profile.isMonitored()) {
+                return;
             }
-        }
 
-        if (!shouldLog) {
-            return;
+            long timestamp = System.currentTimeMillis();
+            PlayerSnapshot actor = PlayerSnapshot.of(player, profile);
+            String oldMode = player.getGameMode().name();
+            String newMode = event.getNewGameMode().name();
+            submit(() -> logGamemodeChange(actor, oldMode, newMode, timestamp));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.GAMEMODE_CHANGE, start);
         }
+    }
 
-        String time = plugin.getConfigManager().getFormattedTime();
-        String logEntry = plugin.getConfigManager().getMessage("logging.gamemode-change",
-                TIME_PLACEHOLDER, time,
+    private void logGamemodeChange(PlayerSnapshot actor, String oldMode, String newMode, long timestamp) {
+        AuditRouter.Route route = route(actor, AuditEventKind.GAMEMODE_CHANGE, actor.profile().actorType());
+        String playerName = displayName(actor);
+
+        String logEntry = plugin.getConfigManager().getMessage("logging.gamemode-change", timestamp,
                 PLAYER_PLACEHOLDER, playerName,
-                "%oldmode%", oldMode.name(),
-                "%newmode%", newMode.name());
+                "%oldmode%", oldMode,
+                "%newmode%", newMode);
 
-        plugin.getDiscordManager().sendGamemodeChange(playerName, oldMode.name(), newMode.name());
+        plugin.getDiscordManager().sendGamemodeChange(route, timestamp, playerName, oldMode, newMode);
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
+
+        recordEvent(new AuditEvent.GamemodeChange(timestamp, actor.uuid(), actor.name(),
+                actor.profile().actorType(), oldMode, newMode, actor.location()));
     }
 
     @EventHandler
     public void onConsoleCommand(ServerCommandEvent event) {
-        if (!plugin.getConfigManager().isConsoleMonitoringEnabled()) {
-            return;
-        }
+        long start = System.nanoTime();
+        try {
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.consoleMonitoring()) {
+                return;
+            }
 
-        String senderName = event.getSender().getName();
-        String command = event.getCommand();
+            long timestamp = System.currentTimeMillis();
+            String senderName = event.getSender().getName();
+            String command = event.getCommand();
+            submit(() -> processConsoleCommand(senderName, command, timestamp, policy));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.CONSOLE_COMMAND, start);
+        }
+    }
 
-        if (plugin.getConfigManager().isCustomCommandResponsesEnabled()) {
-            handleCustomConsoleCommandResponse(senderName, "/" + command);
+    private void processConsoleCommand(String senderName, String command, long timestamp, MonitoringPolicy policy) {
+        if (policy.customResponses()) {
+            handleCustomConsoleCommandResponse(senderName, "/" + command, timestamp, policy);
         }
 
-        if (plugin.getConfigManager().isCommandBlacklisted("/" + command, true)) {
+        if (policy.isCommandBlacklisted("/" + command, true)) {
             return;
         }
 
-        String time = plugin.getConfigManager().getFormattedTime();
-        String logEntry = plugin.getConfigManager().getMessage("logging.console-command",
-                TIME_PLACEHOLDER, time,
-                "%sender%", senderName,
+        logConsoleCommand(null, senderName, command, timestamp, policy);
+    }
+
+    /**
+     * @param server the network server the command ran on, or null for this server
+     */
+    private void logConsoleCommand(String server, String senderName, String command, long timestamp,
+            MonitoringPolicy policy) {
+        AuditRouter.Route route = policy.router().route(AuditEventKind.CONSOLE_COMMAND, ActorType.CONSOLE,
+                AuditRouter.ALL_PERMISSIONS);
+        String displayName = server != null ? serverTag(server) + senderName : senderName;
+        String logEntry = plugin.getConfigManager().getMessage("logging.console-command", timestamp,
+                "%sender%", displayName,
                 COMMAND_PLACEHOLDER, command);
 
-        plugin.getDiscordManager().sendConsoleCommand(senderName, command);
+        plugin.getDiscordManager().sendConsoleCommand(route, timestamp, displayName, command);
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
+
+        recordEvent(new AuditEvent.ConsoleCommand(timestamp, senderName, command));
     }
 
     @EventHandler
     public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
-        Player player = event.getPlayer();
-        String command = event.getMessage();
-
-        if (plugin.getConfigManager().isCustomCommandResponsesEnabled()
-                && !player.hasPermission("adminwatchdog.bypass.customresponses")) {
-
-            if (shouldMonitorPlayerForCustomResponses(player)) {
-                handleCustomCommandResponse(player, command);
+        long start = System.nanoTime();
+        try {
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            Player player = event.getPlayer();
+            PlayerProfileCache.PlayerProfile profile = profiles.get(player, policy);
+
+            // Cheap checks on the cached profile keep unmonitored players out of the pipeline
+            boolean respond = policy.customResponses() && shouldMonitorPlayerForCustomResponses(profile);
+            MonitoringResult result = shouldMonitorPlayer(profile);
+            if (!respond && !result.shouldLog) {
+                return;
             }
+
+            long timestamp = System.currentTimeMillis();
+            PlayerSnapshot actor = PlayerSnapshot.of(player, profile);
+            String command = event.getMessage();
+            submit(() -> processPlayerCommand(actor, command, timestamp, respond, result));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.PLAYER_COMMAND, start);
         }
+    }
 
-        if (plugin.getConfigManager().isCommandBlacklisted(command, false)) {
-            return;
+    private void processPlayerCommand(PlayerSnapshot actor, String command, long timestamp, boolean respond,
+            MonitoringResult result) {
+        MonitoringPolicy policy = actor.profile().policy();
+
+        if (respond) {
+            handleCustomCommandResponse(actor.name(), command, timestamp, policy);
         }
 
-        MonitoringResult result = shouldMonitorPlayer(player);
-        if (!result.shouldLog) {
+        if (!result.shouldLog || policy.isCommandBlacklisted(command, false)) {
             return;
         }
 
-        logPlayerCommand(player.getName(), command, result.prefix, result.hasSpecialPermission);
+        logPlayerCommand(actor, command, timestamp, result);
     }
 
-    private boolean shouldMonitorPlayerForCustomResponses(Player player) {
+    private boolean shouldMonitorPlayerForCustomResponses(PlayerProfileCache.PlayerProfile profile) {
 
-        if (player.hasPermission("adminwatchdog.bypass.customresponses")) {
+        if (profile.bypassCustomResponses()) {
             return false;
         }
 
-        if (plugin.getConfigManager().isAllCommandsMonitoringEnabled()) {
-            return true;
-        }
-
-        if (plugin.getConfigManager().isOpsMonitoringEnabled() && player.isOp()) {
-            return true;
-        }
-
-        if (plugin.getConfigManager().isPermissionMonitoringEnabled()) {
-            return hasMonitoredPermission(player);
-        }
-
-        return false;
+        return profile.policy().allCommands() || profile.isMonitored();
     }
 
-    private void handleCustomCommandResponse(Player player, String command) {
+    private void handleCustomCommandResponse(String playerName, String command, long timestamp,
+            MonitoringPolicy policy) {
         Map.Entry<String, String> match = plugin.getConfigManager().findMatchingCustomResponse(command, false);
         if (match != null && !match.getValue().isEmpty()) {
-            String formattedResponse = match.getValue()
-                    .replace(PLAYER_PLACEHOLDER, player.getName())
-                    .replace(COMMAND_PLACEHOLDER, command)
-                    .replace(TIME_PLACEHOLDER, plugin.getConfigManager().getFormattedTime());
+            String formattedResponse = plugin.getConfigManager().formatCustomResponse(match.getValue(), timestamp,
+                    PLAYER_PLACEHOLDER, playerName,
+                    COMMAND_PLACEHOLDER, command);
 
-            if (plugin.getConfigManager().isDiscordEnabled()) {
+            if (policy.discordEnabled()) {
                 plugin.getDiscordManager().sendToDiscord(formattedResponse);
             }
         }
     }
 
-    private void handleCustomConsoleCommandResponse(String senderName, String command) {
+    private void handleCustomConsoleCommandResponse(String senderName, String command, long timestamp,
+            MonitoringPolicy policy) {
         Map.Entry<String, String> match = plugin.getConfigManager().findMatchingCustomResponse(command, true);
         if (match != null && !match.getValue().isEmpty()) {
-            String formattedResponse = match.getValue()
-                    .replace("%sender%", senderName)
-                    .replace(COMMAND_PLACEHOLDER, command)
-                    .replace(TIME_PLACEHOLDER, plugin.getConfigManager().getFormattedTime());
+            String formattedResponse = plugin.getConfigManager().formatCustomResponse(match.getValue(), timestamp,
+                    "%sender%", senderName,
+                    COMMAND_PLACEHOLDER, command);
 
-            if (plugin.getConfigManager().isDiscordEnabled()) {
+            if (policy.discordEnabled()) {
                 plugin.getDiscordManager().sendToDiscord(formattedResponse);
             }
         }
     }
 
-    private MonitoringResult shouldMonitorPlayer(Player player) {
+    private MonitoringResult shouldMonitorPlayer(PlayerProfileCache.PlayerProfile profile) {
         MonitoringResult result = new MonitoringResult();
+        MonitoringPolicy policy = profile.policy();
 
-        if (player.hasPermission("adminwatchdog.bypass.commands")) {
+        if (profile.bypassCommands()) {
             return result;
         }
 
-        if (plugin.getConfigManager().isAllCommandsMonitoringEnabled()) {
+        if (policy.allCommands()) {
+            // Everyone gets the plain prefix, but routing and the audit record still see who the actor is
             result.shouldLog = true;
-            result.prefix = plugin.getConfigManager().getPrefix("normal");
+            result.actorType = profile.actorType();
+            result.prefix = policy.prefix(ActorType.NORMAL);
             return result;
         }
 
-        if (plugin.getConfigManager().isOpsMonitoringEnabled() && player.isOp()) {
+        if (policy.opsMonitoring() && profile.op()) {
             result.shouldLog = true;
-            result.prefix = plugin.getConfigManager().getPrefix("op");
+            result.actorType = ActorType.OP;
+            result.prefix = policy.prefix(ActorType.OP);
         }
 
-        if (plugin.getConfigManager().isPermissionMonitoringEnabled() && hasMonitoredPermission(player)) {
+        if (policy.permissionMonitoring() && profile.monitoredPermission()) {
             result.shouldLog = true;
             result.hasSpecialPermission = true;
-            result.prefix = plugin.getConfigManager().getPrefix("permission");
+            result.actorType = ActorType.PERMISSION;
+            result.prefix = policy.prefix(ActorType.PERMISSION);
         }
 
         return result;
     }
 
-    private boolean hasMonitoredPermission(Player player) {
-        List<String> monitoredPerms = plugin.getConfigManager().getMonitoredPermissions();
-        return monitoredPerms.stream().anyMatch(player::hasPermission);
-    }
-
-    private void logPlayerCommand(String playerName, String command, String prefix, boolean hasSpecialPermission) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        String logEntry = plugin.getConfigManager().getMessage("logging.player-command",
-                TIME_PLACEHOLDER, time,
-                "%prefix%", prefix,
+    private void logPlayerCommand(PlayerSnapshot actor, String command, long timestamp, MonitoringResult result) {
+        AuditRouter.Route route = route(actor, AuditEventKind.PLAYER_COMMAND, result.actorType);
+        String playerName = displayName(actor);
+        String logEntry = plugin.getConfigManager().getMessage("logging.player-command", timestamp,
+                "%prefix%", result.prefix,
                 PLAYER_PLACEHOLDER, playerName,
                 COMMAND_PLACEHOLDER, command);
 
-        plugin.getDiscordManager().sendPlayerCommand(playerName, command, hasSpecialPermission);
+        plugin.getDiscordManager().sendPlayerCommand(route, timestamp, playerName, command,
+                result.hasSpecialPermission);
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
+
+        recordEvent(new AuditEvent.PlayerCommand(timestamp, actor.uuid(), actor.name(), result.actorType,
+                command, actor.location()));
     }
 
     private static class MonitoringResult {
         boolean shouldLog = false;
         boolean hasSpecialPermission = false;
+        ActorType actorType = ActorType.NORMAL;
         String prefix = "";
     }
 
     @EventHandler
     public void onCreativeInventory(InventoryCreativeEvent event) {
-        if (!plugin.getConfigManager().isCreativeInventoryMonitoringEnabled()) {
-            return;
-        }
+        long start = System.nanoTime();
+        try {
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.creativeInventory()) {
+                return;
+            }
 
-        if (!(event.getWhoClicked() instanceof Player player)) {
-            return;
-        }
+            if (!(event.getWhoClicked() instanceof Player player)) {
+                return;
+            }
 
-        ItemStack item = event.getCursor();
+            ItemStack item = event.getCursor();
 
-        if (item.getType() == Material.AIR) {
-            return;
-        }
+            if (item.getType() == Material.AIR) {
+                return;
+            }
 
-        boolean shouldLog = shouldMonitorCreativeInventory(player);
-        if (!shouldLog) {
-            return;
-        }
+            // Ignored materials leave before the item meta is copied or anything is queued
+            MaterialWatchlist.Tier tier = policy.creativeWatchlist().tier(item.getType());
+            if (tier == MaterialWatchlist.Tier.IGNORE) {
+                return;
+            }
 
-        logCreativeInventoryAction(player, item);
+            PlayerProfileCache.PlayerProfile profile = profiles.get(player, policy);
+            if (!shouldMonitorCreativeInventory(profile)) {
+                return;
+            }
+
+            long timestamp = System.currentTimeMillis();
+            PlayerSnapshot actor = PlayerSnapshot.of(player, profile);
+            ItemStack captured = item.clone();
+            submit(() -> logCreativeInventoryAction(actor, captured, timestamp, tier));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.CREATIVE_INVENTORY, start);
+        }
     }
 
-    private boolean shouldMonitorCreativeInventory(Player player) {
+    private boolean shouldMonitorCreativeInventory(PlayerProfileCache.PlayerProfile profile) {
+        MonitoringPolicy policy = profile.policy();
 
-        if (player.hasPermission("adminwatchdog.bypass.creative")) {
+        if (profile.bypassCreative()) {
             return false;
         }
 
-        if (plugin.getConfigManager().isCreativeInventoryOpsOnly()) {
-            return player.isOp();
+        if (policy.creativeOpsOnly()) {
+            return profile.op();
         }
 
-        if (plugin.getConfigManager().isCreativeInventoryPermissionsOnly()) {
-            if (!plugin.getConfigManager().isPermissionMonitoringEnabled()) {
+        if (policy.creativePermissionsOnly()) {
+            if (!policy.permissionMonitoring()) {
                 return false;
             }
-            return hasMonitoredPermission(player);
+            return profile.monitoredPermission();
         }
 
-        if (plugin.getConfigManager().isOpsMonitoringEnabled() && player.isOp()) {
-            return true;
-        }
+        return profile.isMonitored();
+    }
 
-        if (plugin.getConfigManager().isPermissionMonitoringEnabled() && hasMonitoredPermission(player)) {
-            return true;
-        }
+    private void logCreativeInventoryAction(PlayerSnapshot actor, ItemStack item, long timestamp,
+            MaterialWatchlist.Tier tier) {
+        recordEvent(new AuditEvent.CreativeInventory(timestamp, actor.uuid(), actor.name(),
+                actor.profile().actorType(), ItemSnapshot.of(item), actor.location()));
 
-        return false;
+        // Critical grabs are not held back in a burst
+        MonitoringPolicy policy = actor.profile().policy();
+        if (policy.creativeBurstWindowMillis() > 0 && tier != MaterialWatchlist.Tier.CRITICAL) {
+            creativeBursts.add(actor.uuid(), actor, item, tier, timestamp, policy);
+        } else {
+            reportCreativeInventoryAction(actor, item, timestamp);
+        }
     }
 
-    private void logCreativeInventoryAction(Player player, ItemStack item) {
-        String playerName = player.getName();
+    /**
+     * Writes a single grab to the log file and Discord; the structured log already has it.
+     */
+    private void reportCreativeInventoryAction(PlayerSnapshot actor, ItemStack item, long timestamp) {
+        PlayerProfileCache.PlayerProfile profile = actor.profile();
+        MonitoringPolicy policy = profile.policy();
+        AuditRouter.Route route = route(actor, AuditEventKind.CREATIVE_INVENTORY, profile.actorType(),
+                policy.creativeWatchlist().tier(item.getType()));
+        String playerName = displayName(actor);
         String itemName = getItemDisplayName(item);
         String materialName = item.getType().name();
         int amount = item.getAmount();
 
-        String prefix;
+        ActorType actorType = profile.actorType();
+        String prefix = policy.prefix(actorType);
 
-        if (player.isOp()) {
-            prefix = plugin.getConfigManager().getPrefix("op");
-        } else if (hasMonitoredPermission(player)) {
-            prefix = plugin.getConfigManager().getPrefix("permission");
-        } else {
-            prefix = plugin.getConfigManager().getPrefix("normal");
-        }
-
-        String time = plugin.getConfigManager().getFormattedTime();
-        String messageKey = plugin.getConfigManager().isCreativeInventoryDetailedLogging()
+        String messageKey = policy.creativeDetailedLogging()
                 ? "logging.creative-inventory-detailed"
                 : "logging.creative-inventory";
 
-        String logEntry = plugin.getConfigManager().getMessage(messageKey,
-                TIME_PLACEHOLDER, time,
+        String logEntry = plugin.getConfigManager().getMessage(messageKey, timestamp,
                 "%prefix%", prefix,
                 PLAYER_PLACEHOLDER, playerName,
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
                 "%material%", materialName);
 
-        plugin.getDiscordManager().sendCreativeInventoryAction(playerName, item);
+        plugin.getDiscordManager().sendCreativeInventoryAction(route, timestamp, playerName, item);
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+        if (route.file()) {
+            writeToLogFile(logEntry);
+        }
+    }
+
+    private void reportCreativeBurst(CreativeBurstAggregator.Burst<PlayerSnapshot> burst) {
+        PlayerSnapshot actor = burst.actor();
+        if (burst.grabs() == 1) {
+            reportCreativeInventoryAction(actor, burst.firstItem(), burst.firstAt());
+            return;
+        }
+
+        MonitoringPolicy policy = actor.profile().policy();
+        AuditRouter.Route route = route(actor, AuditEventKind.CREATIVE_INVENTORY, actor.profile().actorType(),
+                burst.tier());
+        String playerName = displayName(actor);
+        String amount = String.valueOf(burst.items());
+        String materials = String.valueOf(burst.materialCount());
+        String duration = String.valueOf(Math.max(1, Math.round((burst.lastAt() - burst.firstAt()) / 1000.0)));
+        String items = burst.describe(MAX_BURST_MATERIALS);
+
+        String logEntry = plugin.getConfigManager().getMessage("logging.creative-inventory-burst", burst.firstAt(),
+                "%prefix%", policy.prefix(actor.profile().actorType()),
+                PLAYER_PLACEHOLDER, playerName,
+                "%amount%", amount,
+                "%materials%", materials,
+                "%duration%", duration,
+                "%items%", items);
+
+        plugin.getDiscordManager().sendCreativeInventoryBurst(route, burst.firstAt(), playerName, amount, materials,
+                duration, items);
+
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
     }
@@ -366,134 +534,343 @@ public class CommandListener implements Listener {
         return item.getType().name().toLowerCase().replace('_', ' ');
     }
 
-    private void writeToLogFile(String logEntry) {
-        CompletableFuture.runAsync(() -> {
-            try (FileWriter writer = new FileWriter(logFile, true)) {
-                writer.write(logEntry + System.lineSeparator());
-            } catch (IOException e) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    e.printStackTrace();
-                }
-            }
-        });
+    /**
+     * The part of a player the pipeline needs, read on the server thread.
+     *
+     * @param server the network server the player is on, or null for this server
+     */
+    private record PlayerSnapshot(UUID uuid, String name, String server, PlayerProfileCache.PlayerProfile profile,
+            AuditLocation location) {
+
+        static PlayerSnapshot of(Player player, PlayerProfileCache.PlayerProfile profile) {
+            return new PlayerSnapshot(player.getUniqueId(), player.getName(), null, profile,
+                    AuditLocation.of(player.getLocation()));
+        }
     }
 
     /**
-     * Stores info about items dropped from creative mode
+     * The player's name as shown in the log file and Discord, tagged with the server on a collector.
      */
-    private record DroppedItemInfo(String dropperName, UUID dropperUuid, ItemStack item, long dropTime) {
+    private String displayName(PlayerSnapshot actor) {
+        return actor.server() != null ? serverTag(actor.server()) + actor.name() : actor.name();
     }
 
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerDropItem(PlayerDropItemEvent event) {
-        if (event.isCancelled()) {
-            return;
+    private String serverTag(String server) {
+        return plugin.getConfigManager().getMessage("network.server-tag", "%server%", server);
+    }
+
+    private void submit(Runnable task) {
+        AuditPipeline pipeline = plugin.getAuditPipeline();
+        if (pipeline != null) {
+            pipeline.submit(task);
+        } else {
+            task.run();
         }
+    }
 
-        if (!plugin.getConfigManager().isCreativeItemDropMonitoringEnabled()) {
-            return;
+    private static AuditRouter.Route route(PlayerSnapshot actor, AuditEventKind kind, ActorType actorType) {
+        PlayerProfileCache.PlayerProfile profile = actor.profile();
+        return profile.policy().router().route(kind, actorType, profile.routePermissions());
+    }
+
+    /**
+     * The route of an item event; log-only materials stay off Discord.
+     */
+    private static AuditRouter.Route route(PlayerSnapshot actor, AuditEventKind kind, ActorType actorType,
+            MaterialWatchlist.Tier tier) {
+        return limit(route(actor, kind, actorType), tier);
+    }
+
+    private static AuditRouter.Route limit(AuditRouter.Route route, MaterialWatchlist.Tier tier) {
+        return tier == MaterialWatchlist.Tier.LOG_ONLY ? route.withoutDiscord() : route;
+    }
+
+    /**
+     * Appends to the structured event log and the database and, on a forwarder, sends the event to the collector.
+     */
+    private void recordEvent(AuditEvent event) {
+        AuditLogWriter<AuditEvent> eventLog = plugin.getEventLogWriter();
+        if (eventLog != null) {
+            eventLog.append(event);
         }
 
-        Player player = event.getPlayer();
+        AuditDatabase database = plugin.getAuditDatabase();
+        if (database != null) {
+            database.append(event);
+        }
 
-        if (player.getGameMode() != GameMode.CREATIVE) {
-            return;
+        AuditForwarder forwarder = plugin.getAuditForwarder();
+        if (forwarder != null) {
+            forwarder.forward(event);
         }
 
-        if (player.hasPermission("adminwatchdog.bypass.creative")) {
-            return;
+        anomalies.accept(event, plugin.getConfigManager().getPolicy().anomalyDetection());
+    }
+
+    /**
+     * Alerts raised by the anomaly detector since the plugin started.
+     */
+    public long getAnomalyCount() {
+        return anomalies.getAnomalies();
+    }
+
+    private void reportAnomaly(AnomalyDetector.Anomaly anomaly) {
+        AnomalyDetector.Settings settings = plugin.getConfigManager().getPolicy().anomalyDetection();
+        String[] placeholders = {
+                PLAYER_PLACEHOLDER, anomaly.playerName(),
+                "%subject%", anomaly.subject() != null ? anomaly.subject() : "",
+                "%count%", String.valueOf(anomaly.count()),
+                "%ratio%", String.valueOf(Math.round(anomaly.ratio())),
+                "%window%", String.valueOf(TimeUnit.MILLISECONDS.toMinutes(settings.recipientWindowMillis()))
+        };
+        String key = "anomaly-" + anomaly.pattern().configName();
+
+        plugin.getDiscordManager().sendAnomaly(settings.route(), anomaly.timestamp(), "discord." + key,
+                placeholders);
+
+        if (settings.route().file()) {
+            writeToLogFile(plugin.getConfigManager().getMessage("logging." + key, anomaly.timestamp(),
+                    placeholders));
         }
+    }
 
-        if (!shouldMonitorCreativeInventory(player)) {
-            return;
+    private void writeToLogFile(String logEntry) {
+        AuditLogWriter<String> writer = plugin.getAuditLogWriter();
+        if (writer != null) {
+            writer.append(logEntry);
         }
+    }
 
-        Item droppedItem = event.getItemDrop();
-        ItemStack itemStack = droppedItem.getItemStack();
+    /**
+     * Marks a dropped creative item with its source, or counts a hand-off on an item that is already
+     * marked, before anyone can pick it up. This changes the dropped item, so it runs at HIGHEST and
+     * leaves the reporting to {@link #onPlayerDropItem}.
+     */
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onPlayerDropItemMark(PlayerDropItemEvent event) {
+        long start = System.nanoTime();
+        try {
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.creativeItemDrops() || !policy.creativeDropTrackPickup()) {
+                return;
+            }
 
-        if (plugin.getConfigManager().isCreativeItemDropTrackPickup()) {
-            trackedCreativeDrops.put(droppedItem.getUniqueId(),
-                    new DroppedItemInfo(player.getName(), player.getUniqueId(), itemStack.clone(),
-                            System.currentTimeMillis()));
+            Item droppedItem = event.getItemDrop();
+            ItemStack stack = droppedItem.getItemStack();
+            if (policy.creativeWatchlist().isIgnored(stack.getType())) {
+                return;
+            }
+
+            Player player = event.getPlayer();
+            ItemProvenance.Origin origin = provenance.read(stack);
+            if (isMonitoredCreativeDrop(player, policy)) {
+                // An item that already carries a marker keeps its original creative source
+                if (origin != null) {
+                    return;
+                }
+                provenance.write(stack, new ItemProvenance.Origin(player.getUniqueId(), player.getName(),
+                        System.currentTimeMillis(), 0));
+            } else if (origin != null && !player.getUniqueId().equals(origin.playerUuid())) {
+                provenance.write(stack, origin.handedOff());
+            } else {
+                return;
+            }
+            droppedItem.setItemStack(stack);
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.ITEM_MARK, start);
         }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
+        long start = System.nanoTime();
+        try {
+            if (event.isCancelled()) {
+                return;
+            }
 
-        logCreativeItemDrop(player, itemStack);
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.creativeItemDrops()) {
+                return;
+            }
+
+            // Ignored materials are never marked, so they need neither a profile nor a marker check
+            Item droppedItem = event.getItemDrop();
+            ItemStack stack = droppedItem.getItemStack();
+            if (policy.creativeWatchlist().isIgnored(stack.getType())) {
+                return;
+            }
+
+            Player player = event.getPlayer();
+            long timestamp = System.currentTimeMillis();
+
+            PlayerProfileCache.PlayerProfile profile = player.getGameMode() == GameMode.CREATIVE
+                    ? profiles.get(player, policy) : null;
+            if (profile == null || !shouldMonitorCreativeInventory(profile)) {
+                // Only items marked by onPlayerDropItemMark are followed from here
+                if (policy.creativeDropTrackPickup() && provenance.read(stack) != null) {
+                    creativeDrops.track(droppedItem.getUniqueId(), player.getUniqueId(), player.getName(), stack,
+                            timestamp, policy);
+                }
+                return;
+            }
+
+            if (policy.creativeDropTrackPickup()) {
+                creativeDrops.track(droppedItem.getUniqueId(), player.getUniqueId(), player.getName(), stack,
+                        timestamp, policy);
+            }
+
+            ItemStack captured = stack.clone();
+            PlayerSnapshot actor = PlayerSnapshot.of(player, profile);
+            submit(() -> logCreativeItemDrop(actor, captured, timestamp));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.ITEM_DROP, start);
+        }
+    }
+
+    private boolean isMonitoredCreativeDrop(Player player, MonitoringPolicy policy) {
+        return player.getGameMode() == GameMode.CREATIVE
+                && shouldMonitorCreativeInventory(profiles.get(player, policy));
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onEntityPickupItem(EntityPickupItemEvent event) {
-        if (event.isCancelled()) {
-            return;
-        }
+        long start = System.nanoTime();
+        try {
+            if (event.isCancelled()) {
+                return;
+            }
 
-        if (!plugin.getConfigManager().isCreativeItemDropMonitoringEnabled()) {
-            return;
-        }
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.creativeItemDrops() || !policy.creativeDropTrackPickup()) {
+                return;
+            }
 
-        if (!plugin.getConfigManager().isCreativeItemDropTrackPickup()) {
-            return;
-        }
+            if (!(event.getEntity() instanceof Player picker)) {
+                return;
+            }
 
-        if (!(event.getEntity() instanceof Player picker)) {
-            return;
-        }
+            Item item = event.getItem();
+            long timestamp = System.currentTimeMillis();
 
-        Item item = event.getItem();
-        UUID itemUuid = item.getUniqueId();
+            CreativeDropTracker.TrackedDrop drop = creativeDrops.pickup(item.getUniqueId(), event.getRemaining(),
+                    timestamp, policy);
+            if (drop == null) {
+                return;
+            }
 
-        DroppedItemInfo dropInfo = trackedCreativeDrops.remove(itemUuid);
-        if (dropInfo == null) {
-            return;
-        }
+            if (picker.getUniqueId().equals(drop.dropperUuid())) {
+                return;
+            }
 
-        if (picker.getUniqueId().equals(dropInfo.dropperUuid())) {
-            return;
-        }
+            ItemStack picked = item.getItemStack().clone();
+            if (!drop.matches(picked)) {
+                return;
+            }
+            picked.setAmount(Math.max(1, picked.getAmount() - event.getRemaining()));
+            creativeDrops.recordMatch();
+
+            ItemProvenance.Origin marker = provenance.read(picked);
+            ItemProvenance.Origin origin = marker != null ? marker
+                    : new ItemProvenance.Origin(drop.dropperUuid(), drop.dropperName(), drop.dropTime(), 0);
 
-        logCreativeItemPickup(picker, dropInfo);
+            PlayerSnapshot actor = PlayerSnapshot.of(picker, profiles.get(picker, policy));
+            submit(() -> logCreativeItemPickup(actor, drop, origin, picked, timestamp));
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.ITEM_PICKUP, start);
+        }
     }
 
-    private void logCreativeItemDrop(Player player, ItemStack item) {
-        String playerName = player.getName();
+    private void logCreativeItemDrop(PlayerSnapshot actor, ItemStack item, long timestamp) {
+        AuditRouter.Route route = route(actor, AuditEventKind.CREATIVE_ITEM_DROP, actor.profile().actorType(),
+                actor.profile().policy().creativeWatchlist().tier(item.getType()));
+        String playerName = displayName(actor);
         String itemName = getItemDisplayName(item);
         String materialName = item.getType().name();
         int amount = item.getAmount();
 
-        String time = plugin.getConfigManager().getFormattedTime();
-        String logEntry = plugin.getConfigManager().getMessage("logging.creative-item-drop",
-                TIME_PLACEHOLDER, time,
+        String logEntry = plugin.getConfigManager().getMessage("logging.creative-item-drop", timestamp,
                 PLAYER_PLACEHOLDER, playerName,
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
                 "%material%", materialName);
 
-        plugin.getDiscordManager().sendCreativeItemDrop(playerName, item);
+        plugin.getDiscordManager().sendCreativeItemDrop(route, timestamp, playerName, item);
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
+
+        recordEvent(new AuditEvent.CreativeItemDrop(timestamp, actor.uuid(), actor.name(),
+                actor.profile().actorType(), ItemSnapshot.of(item), actor.location()));
     }
 
-    private void logCreativeItemPickup(Player picker, DroppedItemInfo dropInfo) {
-        String pickerName = picker.getName();
-        String dropperName = dropInfo.dropperName();
-        ItemStack item = dropInfo.item();
+    /**
+     * @param drop   who dropped the item this time
+     * @param origin the creative player it originally came from, and how often it changed hands since
+     */
+    private void logCreativeItemPickup(PlayerSnapshot actor, CreativeDropTracker.TrackedDrop drop,
+            ItemProvenance.Origin origin, ItemStack item, long timestamp) {
+        AuditRouter.Route route = route(actor, AuditEventKind.CREATIVE_ITEM_PICKUP, actor.profile().actorType(),
+                actor.profile().policy().creativeWatchlist().tier(item.getType()));
+        String pickerName = displayName(actor);
+        String dropperName = origin.playerName();
+        String holderName = drop.dropperName();
+        int handOffs = origin.handOffs() + 1;
         String itemName = getItemDisplayName(item);
         String materialName = item.getType().name();
         int amount = item.getAmount();
 
-        String time = plugin.getConfigManager().getFormattedTime();
-        String logEntry = plugin.getConfigManager().getMessage("logging.creative-item-pickup",
-                TIME_PLACEHOLDER, time,
+        String logEntry = plugin.getConfigManager().getMessage(
+                handOffs > 1 ? "logging.creative-item-handoff" : "logging.creative-item-pickup", timestamp,
                 "%picker%", pickerName,
                 "%dropper%", dropperName,
+                "%holder%", holderName,
+                "%hops%", String.valueOf(handOffs),
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
                 "%material%", materialName);
 
-        plugin.getDiscordManager().sendCreativeItemPickup(pickerName, dropperName, item);
+        plugin.getDiscordManager().sendCreativeItemPickup(route, timestamp, pickerName, dropperName, holderName,
+                handOffs, item);
+
+        if (route.file()) {
+            writeToLogFile(logEntry);
+        }
+
+        recordEvent(new AuditEvent.CreativeItemPickup(timestamp, actor.uuid(), actor.name(),
+                actor.profile().actorType(), origin.playerUuid(), dropperName, ItemSnapshot.of(item),
+                actor.location()));
+    }
+
+    /**
+     * Reports a tracked drop arriving in a container, for {@link ContainerTransferListener}.
+     */
+    void reportCreativeItemTransfer(ItemProvenance.Origin origin, ItemStack item, String source,
+            String destination, AuditLocation location, long timestamp, MonitoringPolicy policy) {
+        submit(() -> logCreativeItemTransfer(origin, item, source, destination, location, timestamp, policy));
+    }
 
-        if (plugin.getConfigManager().isFileLoggingEnabled()) {
+    private void logCreativeItemTransfer(ItemProvenance.Origin origin, ItemStack item, String source,
+            String destination, AuditLocation location, long timestamp, MonitoringPolicy policy) {
+        // Transfers have no acting player, so they are routed like a pickup by a normal player. They are
+        // not audit events and are never forwarded, so a forwarder reports them itself
+        AuditRouter.Route route = limit(
+                policy.localRouter().route(AuditEventKind.CREATIVE_ITEM_PICKUP, ActorType.NORMAL, 0L),
+                policy.creativeWatchlist().tier(item.getType()));
+        String logEntry = plugin.getConfigManager().getMessage("logging.creative-item-transfer", timestamp,
+                "%dropper%", origin.playerName(),
+                "%amount%", String.valueOf(item.getAmount()),
+                "%item%", getItemDisplayName(item),
+                "%material%", item.getType().name(),
+                "%source%", source,
+                "%destination%", destination,
+                "%location%", location.toString());
+
+        plugin.getDiscordManager().sendCreativeItemTransfer(route, timestamp, origin.playerName(), item, source,
+                destination, location);
+
+        if (route.file()) {
             writeToLogFile(logEntry);
         }
     }
@@ -0,0 +1,212 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom response patterns compiled into a trie of command words.
+ * Literal words are looked up in a hash map per node, words containing * are kept as
+ * glob children where each * matches one or more characters of a single word.
+ * A pattern matches a command when its words match the leading words of the command.
+ * <p>
+ * When several patterns match, the most specific one wins: patterns with more words first,
+ * then wildcard patterns before plain ones, then config order. The trie is immutable and
+ * only rebuilt on reload.
+ */
+public final class CommandPatternTrie {
+
+    private static final CommandPatternTrie EMPTY = new CommandPatternTrie(new Node(), 0);
+
+    private final Node root;
+    private final int size;
+
+    private CommandPatternTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static CommandPatternTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param patterns pattern to response, in config order; empty responses are ignored
+     */
+    public static CommandPatternTrie compile(Map<String, String> patterns) {
+        List<CompiledPattern> compiled = new ArrayList<>();
+        for (Map.Entry<String, String> entry : patterns.entrySet()) {
+            String response = entry.getValue();
+            String[] words = entry.getKey().trim().toLowerCase().split("\\s+");
+            if (response == null || response.isEmpty() || words[0].isEmpty()) {
+                continue;
+            }
+            compiled.add(new CompiledPattern(words, entry.getKey().contains("*"),
+                    new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), response)));
+        }
+
+        // Stable sort keeps config order for patterns of equal specificity
+        compiled.sort(Comparator.comparingInt((CompiledPattern pattern) -> -pattern.words().length)
+                .thenComparing(pattern -> !pattern.wildcard()));
+
+        Node root = new Node();
+        for (int rank = 0; rank < compiled.size(); rank++) {
+            CompiledPattern pattern = compiled.get(rank);
+            Node node = root;
+            for (String word : pattern.words()) {
+                node = node.child(word);
+            }
+            if (node.response == null) {
+                node.response = pattern.response();
+                node.rank = rank;
+            }
+        }
+        root.computeMinRank();
+        return new CommandPatternTrie(root, compiled.size());
+    }
+
+    /**
+     * @param command command with or without the leading slash, in any case
+     * @return pattern key and response of the most specific match, or null
+     */
+    public Map.Entry<String, String> match(String command) {
+        if (size == 0) {
+            return null;
+        }
+
+        String normalized = command.toLowerCase();
+        int start = normalized.startsWith("/") ? 1 : 0;
+        Node best = search(root, normalized, start, null);
+        return best != null ? best.response : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Node search(Node node, String command, int position, Node best) {
+        if (best != null && node.minRank >= best.rank) {
+            return best;
+        }
+        if (node.response != null && (best == null || node.rank < best.rank)) {
+            best = node;
+        }
+
+        int start = position;
+        while (start < command.length() && Character.isWhitespace(command.charAt(start))) {
+            start++;
+        }
+        if (start == command.length()) {
+            return best;
+        }
+        int end = start;
+        while (end < command.length() && !Character.isWhitespace(command.charAt(end))) {
+            end++;
+        }
+
+        if (node.literals != null) {
+            Node child = node.literals.get(command.substring(start, end));
+            if (child != null) {
+                best = search(child, command, end, best);
+            }
+        }
+        for (Glob glob : node.globs) {
+            if (glob.matches(command, start, end)) {
+                best = search(glob.node, command, end, best);
+            }
+        }
+        return best;
+    }
+
+    private record CompiledPattern(String[] words, boolean wildcard, Map.Entry<String, String> response) {
+    }
+
+    private static final class Node {
+        private static final Glob[] NO_GLOBS = new Glob[0];
+
+        private Map<String, Node> literals;
+        private Glob[] globs = NO_GLOBS;
+        private Map.Entry<String, String> response;
+        private int rank = Integer.MAX_VALUE;
+        private int minRank = Integer.MAX_VALUE;
+
+        private Node child(String word) {
+            if (word.indexOf('*') < 0) {
+                if (literals == null) {
+                    literals = new HashMap<>();
+                }
+                return literals.computeIfAbsent(word, key -> new Node());
+            }
+
+            for (Glob glob : globs) {
+                if (glob.pattern.equals(word)) {
+                    return glob.node;
+                }
+            }
+            Glob glob = new Glob(word, new Node());
+            globs = Arrays.copyOf(globs, globs.length + 1);
+            globs[globs.length - 1] = glob;
+            return glob.node;
+        }
+
+        private int computeMinRank() {
+            int min = rank;
+            if (literals != null) {
+                for (Node child : literals.values()) {
+                    min = Math.min(min, child.computeMinRank());
+                }
+            }
+            for (Glob glob : globs) {
+                min = Math.min(min, glob.node.computeMinRank());
+            }
+            minRank = min;
+            return min;
+        }
+    }
+
+    /**
+     * A single pattern word containing *, e.g. "*" or "essentials.*".
+     */
+    private static final class Glob {
+        private final String pattern;
+        private final String[] parts;
+        private final Node node;
+
+        private Glob(String pattern, Node node) {
+            this.pattern = pattern;
+            this.parts = pattern.split("\\*", -1);
+            this.node = node;
+        }
+
+        private boolean matches(String command, int start, int end) {
+            String first = parts[0];
+            if (!command.regionMatches(start, first, 0, first.length())) {
+                return false;
+            }
+            return matchesFrom(command, start + first.length(), end, 1);
+        }
+
+        /**
+         * Matches "*" followed by parts[index..] against command[position, end).
+         */
+        private boolean matchesFrom(String command, int position, int end, int index) {
+            String part = parts[index];
+            if (index == parts.length - 1) {
+                int partStart = end - part.length();
+                return partStart > position && command.regionMatches(partStart, part, 0, part.length());
+            }
+
+            for (int candidate = position + 1; candidate + part.length() <= end; candidate++) {
+                if (command.regionMatches(candidate, part, 0, part.length())
+                        && matchesFrom(command, candidate + part.length(), end, index + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
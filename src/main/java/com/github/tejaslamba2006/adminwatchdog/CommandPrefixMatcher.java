@@ -0,0 +1,128 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Case-insensitive prefix set for command blacklists.
+ * Prefixes are compiled into a character trie flattened into arrays: the edges of node n are
+ * {@code labels[edgeStart[n] .. edgeStart[n + 1])}, sorted so each step is a binary search.
+ * A lookup walks the command once, folding case per character, and does not allocate.
+ */
+public final class CommandPrefixMatcher {
+
+    private static final CommandPrefixMatcher EMPTY = compile(List.of());
+
+    private final int[] edgeStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final boolean[] terminal;
+    private final int size;
+
+    private CommandPrefixMatcher(int[] edgeStart, char[] labels, int[] targets, boolean[] terminal, int size) {
+        this.edgeStart = edgeStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.terminal = terminal;
+        this.size = size;
+    }
+
+    public static CommandPrefixMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param prefixes command prefixes including the leading slash, in any case
+     */
+    public static CommandPrefixMatcher compile(List<String> prefixes) {
+        BuildNode root = new BuildNode();
+        int size = 0;
+        for (String prefix : prefixes) {
+            if (prefix.isEmpty()) {
+                continue;
+            }
+            BuildNode node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(Character.toLowerCase(prefix.charAt(i)),
+                        key -> new BuildNode());
+            }
+            if (!node.terminal) {
+                node.terminal = true;
+                size++;
+            }
+        }
+
+        // Breadth-first numbering so every node's edges are contiguous
+        List<BuildNode> order = new ArrayList<>();
+        Queue<BuildNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            node.id = order.size();
+            order.add(node);
+            queue.addAll(node.children.values());
+        }
+
+        int nodes = order.size();
+        int[] edgeStart = new int[nodes + 1];
+        char[] labels = new char[nodes - 1];
+        int[] targets = new int[nodes - 1];
+        boolean[] terminal = new boolean[nodes];
+
+        int edge = 0;
+        for (BuildNode node : order) {
+            edgeStart[node.id] = edge;
+            terminal[node.id] = node.terminal;
+            for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                labels[edge] = child.getKey();
+                targets[edge] = child.getValue().id;
+                edge++;
+            }
+        }
+        edgeStart[nodes] = edge;
+
+        return new CommandPrefixMatcher(edgeStart, labels, targets, terminal, size);
+    }
+
+    /**
+     * @return true if the command starts with any of the prefixes, ignoring case
+     */
+    public boolean matches(String command) {
+        if (size == 0) {
+            return false;
+        }
+
+        int node = 0;
+        for (int i = 0; i < command.length(); i++) {
+            int from = edgeStart[node];
+            int to = edgeStart[node + 1];
+            if (from == to) {
+                return false;
+            }
+            int edge = Arrays.binarySearch(labels, from, to, Character.toLowerCase(command.charAt(i)));
+            if (edge < 0) {
+                return false;
+            }
+            node = targets[edge];
+            if (terminal[node]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private boolean terminal;
+        private int id;
+    }
+}
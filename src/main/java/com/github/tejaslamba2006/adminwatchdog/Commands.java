@@ -1,5 +1,7 @@
 package com.github.tejaslamba2006.adminwatchdog;
 
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -8,11 +10,20 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public final class Commands implements TabExecutor {
 
     private static final List<String> SUB_COMMANDS = Arrays.asList(
-            "version", "v", "ver", "reload", "rl", "update", "checkupdate");
+            "version", "v", "ver", "reload", "rl", "update", "checkupdate", "search", "top", "stats");
+    private static final List<String> SEARCH_FIELDS = Arrays.asList("player", "command", "material");
+    private static final List<String> TOP_RANKINGS = Arrays.asList("commands", "players", "materials");
+    private static final List<String> TOP_ACTORS = Arrays.asList("op", "permission", "normal", "console");
+    private static final int TOP_LIMIT = 10;
+    private static final long DEFAULT_TOP_PERIOD_MILLIS = TimeUnit.DAYS.toMillis(7);
 
     private final AdminWatchdog plugin;
 
@@ -46,6 +57,8 @@ public final class Commands implements TabExecutor {
 
                 try {
                     plugin.getConfigManager().reloadConfigs();
+                    plugin.updateContainerTransferListener();
+                    plugin.getDiscordManager().reload();
                     sender.sendMessage(plugin.getConfigManager().getMessage("commands.reload-success"));
                 } catch (Exception e) {
                     sender.sendMessage(plugin.getConfigManager().getMessage("commands.reload-failed"));
@@ -86,11 +99,307 @@ public final class Commands implements TabExecutor {
 
                 return true;
             }
+            case "search" -> {
+                handleSearch(sender, args);
+                return true;
+            }
+            case "top" -> {
+                handleTop(sender, args);
+                return true;
+            }
+            case "stats" -> {
+                handleStats(sender);
+                return true;
+            }
         }
 
         return false;
     }
 
+    private void handleSearch(CommandSender sender, String[] args) {
+        ConfigManager config = plugin.getConfigManager();
+        if (!sender.hasPermission("adminwatchdog.search")) {
+            sender.sendMessage(config.getMessage("commands.no-permission"));
+            return;
+        }
+
+        AuditSearch search = plugin.getAuditSearch();
+        if (search == null) {
+            sender.sendMessage(config.getMessage("search.unavailable"));
+            return;
+        }
+
+        if (args.length < 3 || !SEARCH_FIELDS.contains(args[1].toLowerCase())) {
+            sender.sendMessage(config.getMessage("search.usage"));
+            return;
+        }
+
+        AuditSearch.Field field = AuditSearch.Field.valueOf(args[1].toUpperCase());
+        String value = args[2];
+        UUID playerUuid = null;
+
+        switch (field) {
+            case PLAYER -> {
+                playerUuid = resolvePlayer(value);
+                if (playerUuid == null) {
+                    sender.sendMessage(config.getMessage("search.unknown-player", "%player%", value));
+                    return;
+                }
+            }
+            case COMMAND -> value = AuditSegmentIndex.commandRoot(value);
+            case MATERIAL -> value = value.toUpperCase();
+        }
+
+        long now = System.currentTimeMillis();
+        long since = args.length > 3 ? AuditSearch.parseTime(args[3], now) : 0L;
+        long until = args.length > 4 ? AuditSearch.parseTime(args[4], now) : now;
+        if (since < 0 || until < 0 || value == null) {
+            sender.sendMessage(config.getMessage("search.invalid-time"));
+            return;
+        }
+
+        AuditSearch.Query query = new AuditSearch.Query(field, value, playerUuid, since, until,
+                config.getMaxSearchResults());
+
+        search.search(query).thenAccept(result -> {
+            if (result.events().isEmpty()) {
+                sender.sendMessage(config.getMessage("search.no-results",
+                        "%time%", String.valueOf(result.elapsedMillis())));
+                return;
+            }
+
+            sender.sendMessage(config.getMessage("search.header",
+                    "%shown%", String.valueOf(result.events().size()),
+                    "%count%", String.valueOf(result.totalFound()),
+                    "%time%", String.valueOf(result.elapsedMillis())));
+            for (AuditEvent event : result.events()) {
+                sender.sendMessage(config.getMessage("search.result",
+                        "%time%", config.formatTime(event.timestamp()),
+                        "%player%", event.playerName(),
+                        "%action%", AuditSearch.describe(event)));
+            }
+        }).exceptionally(ex -> {
+            sender.sendMessage(config.getMessage("search.failed", "%error%", ex.getMessage()));
+            return null;
+        });
+    }
+
+    /**
+     * /aw top commands|players|materials [since] [actor], answered from the audit database.
+     */
+    private void handleTop(CommandSender sender, String[] args) {
+        ConfigManager config = plugin.getConfigManager();
+        if (!sender.hasPermission("adminwatchdog.search")) {
+            sender.sendMessage(config.getMessage("commands.no-permission"));
+            return;
+        }
+
+        AuditDatabase database = plugin.getAuditDatabase();
+        if (database == null) {
+            sender.sendMessage(config.getMessage("top.unavailable"));
+            return;
+        }
+
+        if (args.length < 2 || !TOP_RANKINGS.contains(args[1].toLowerCase())) {
+            sender.sendMessage(config.getMessage("top.usage"));
+            return;
+        }
+
+        AuditDatabase.Ranking ranking = AuditDatabase.Ranking.valueOf(args[1].toUpperCase());
+        long now = System.currentTimeMillis();
+        long since = args.length > 2 ? AuditSearch.parseTime(args[2], now) : now - DEFAULT_TOP_PERIOD_MILLIS;
+        if (since < 0) {
+            sender.sendMessage(config.getMessage("search.invalid-time"));
+            return;
+        }
+
+        ActorType actorType = null;
+        if (args.length > 3) {
+            actorType = ActorType.fromConfigName(args[3]);
+            if (actorType == null) {
+                sender.sendMessage(config.getMessage("top.usage"));
+                return;
+            }
+        }
+
+        String period = args.length > 2 ? args[2] : "7d";
+        String actors = actorType != null ? actorType.configName() : "all";
+        database.top(new AuditDatabase.TopQuery(ranking, actorType, since, now, TOP_LIMIT)).thenAccept(result -> {
+            if (result.entries().isEmpty()) {
+                sender.sendMessage(config.getMessage("search.no-results",
+                        "%time%", String.valueOf(result.elapsedMillis())));
+                return;
+            }
+
+            sender.sendMessage(config.getMessage("top.header",
+                    "%ranking%", ranking.name().toLowerCase(),
+                    "%since%", period,
+                    "%actors%", actors,
+                    "%time%", String.valueOf(result.elapsedMillis())));
+            int rank = 1;
+            for (AuditDatabase.Entry entry : result.entries()) {
+                sender.sendMessage(config.getMessage("top.entry",
+                        "%rank%", String.valueOf(rank++),
+                        "%name%", String.valueOf(entry.name()),
+                        "%count%", String.valueOf(entry.score())));
+            }
+        }).exceptionally(ex -> {
+            sender.sendMessage(config.getMessage("search.failed", "%error%", ex.getMessage()));
+            return null;
+        });
+    }
+
+    private void handleStats(CommandSender sender) {
+        ConfigManager config = plugin.getConfigManager();
+        if (!sender.hasPermission("adminwatchdog.stats")) {
+            sender.sendMessage(config.getMessage("commands.no-permission"));
+            return;
+        }
+
+        PerformanceStats stats = plugin.getPerformanceStats();
+        long uptimeMillis = System.currentTimeMillis() - stats.getStartedAt();
+        long ticks = Math.max(1, plugin.getServer().getCurrentTick() - stats.getStartTick());
+        long mainThreadNanos = stats.getMainThreadNanos();
+
+        sender.sendMessage(config.getMessage("stats.header",
+                "%uptime%", formatDuration(uptimeMillis)));
+        sender.sendMessage(config.getMessage("stats.main-thread",
+                "%total%", String.valueOf(LatencyRecorder.toMicros(mainThreadNanos)),
+                "%per-tick%", formatMicros(mainThreadNanos / (double) ticks),
+                "%events%", String.valueOf(stats.getHandledEvents()),
+                "%ticks%", String.valueOf(ticks)));
+
+        for (PerformanceStats.Probe probe : PerformanceStats.Probe.values()) {
+            LatencyRecorder recorder = stats.get(probe);
+            if (recorder.getCount() == 0) {
+                continue;
+            }
+            sender.sendMessage(config.getMessage("stats.latency",
+                    "%name%", recorder.getName(),
+                    "%count%", String.valueOf(recorder.getCount()),
+                    "%mean%", formatMicros(recorder.getMeanNanos()),
+                    "%p50%", formatMicros(recorder.getValueAtPercentile(50)),
+                    "%p99%", formatMicros(recorder.getValueAtPercentile(99)),
+                    "%max%", formatMicros(recorder.getMaxNanos())));
+        }
+
+        AuditPipeline pipeline = plugin.getAuditPipeline();
+        if (pipeline != null) {
+            sender.sendMessage(config.getMessage("stats.pipeline",
+                    "%processed%", String.valueOf(pipeline.getProcessedEvents()),
+                    "%queued%", String.valueOf(pipeline.getQueueDepth()),
+                    "%dropped%", String.valueOf(pipeline.getDroppedEvents()),
+                    "%failed%", String.valueOf(pipeline.getFailedEvents())));
+        }
+
+        CreativeDropTracker drops = plugin.getCreativeDropTracker();
+        if (drops != null) {
+            sender.sendMessage(config.getMessage("stats.drops",
+                    "%tracked%", String.valueOf(drops.size()),
+                    "%matched%", String.valueOf(drops.getMatched()),
+                    "%expired%", String.valueOf(drops.getExpired()),
+                    "%evicted%", String.valueOf(drops.getEvicted()),
+                    "%transfers%", String.valueOf(drops.getTransfers())));
+        }
+
+        AuditForwarder forwarder = plugin.getAuditForwarder();
+        if (forwarder != null) {
+            sender.sendMessage(config.getMessage("stats.forwarder",
+                    "%server%", forwarder.getServerName(),
+                    "%state%", forwarder.isConnected() ? "connected" : "disconnected",
+                    "%forwarded%", String.valueOf(forwarder.getForwardedEvents()),
+                    "%queued%", String.valueOf(forwarder.getQueueDepth()),
+                    "%dropped%", String.valueOf(forwarder.getDroppedEvents()),
+                    "%reconnects%", String.valueOf(forwarder.getReconnects())));
+        }
+
+        AuditCollector collector = plugin.getAuditCollector();
+        if (collector != null) {
+            sender.sendMessage(config.getMessage("stats.collector",
+                    "%connections%", String.valueOf(collector.getConnectionCount()),
+                    "%servers%", String.valueOf(collector.getServerCount()),
+                    "%received%", String.valueOf(collector.getReceivedEvents()),
+                    "%duplicates%", String.valueOf(collector.getDuplicateBatches()),
+                    "%rejected%", String.valueOf(collector.getRejectedConnections()),
+                    "%malformed%", String.valueOf(collector.getMalformedBatches())));
+        }
+
+        CommandListener listener = plugin.getCommandListener();
+        if (listener != null && config.getPolicy().anomalyDetection().enabled()) {
+            sender.sendMessage(config.getMessage("stats.anomalies",
+                    "%alerts%", String.valueOf(listener.getAnomalyCount())));
+        }
+
+        sendWriterStats(sender, "Log file", plugin.getAuditLogWriter());
+        sendWriterStats(sender, "Event log", plugin.getEventLogWriter());
+
+        AuditDatabase database = plugin.getAuditDatabase();
+        if (database != null) {
+            sender.sendMessage(config.getMessage("stats.writer",
+                    "%name%", "Database",
+                    "%written%", String.valueOf(database.getWrittenEvents()),
+                    "%queued%", String.valueOf(database.getQueueDepth()),
+                    "%dropped%", String.valueOf(database.getDroppedEvents())));
+        }
+
+        Map<String, DiscordDispatcher> dispatchers = plugin.getDiscordManager().getCurrentDispatchers();
+        for (Map.Entry<String, DiscordDispatcher> entry : dispatchers.entrySet()) {
+            DiscordDispatcher dispatcher = entry.getValue();
+            sender.sendMessage(config.getMessage("stats.discord",
+                    "%name%", entry.getKey(),
+                    "%delivered%", String.valueOf(dispatcher.getDeliveredMessages()),
+                    "%requests%", String.valueOf(dispatcher.getRequests()),
+                    "%queued%", String.valueOf(dispatcher.getQueueDepth()),
+                    "%dropped%", String.valueOf(dispatcher.getDroppedMessages()),
+                    "%failed%", String.valueOf(dispatcher.getFailedMessages()),
+                    "%retries%", String.valueOf(dispatcher.getRetries()),
+                    "%rate-limited%", String.valueOf(dispatcher.getRateLimited())));
+            if (dispatcher.getBacklog() instanceof DiscordOutbox outbox) {
+                sender.sendMessage(config.getMessage("stats.outbox",
+                        "%file%", outbox.getFile().getName(),
+                        "%used%", String.valueOf(outbox.getBacklogBytes() / 1024),
+                        "%capacity%", String.valueOf(outbox.getCapacityBytes() / 1024)));
+            }
+        }
+    }
+
+    private void sendWriterStats(CommandSender sender, String name, AuditLogWriter<?> writer) {
+        if (writer == null) {
+            return;
+        }
+        sender.sendMessage(plugin.getConfigManager().getMessage("stats.writer",
+                "%name%", name,
+                "%written%", String.valueOf(writer.getWrittenEntries()),
+                "%queued%", String.valueOf(writer.getQueueDepth()),
+                "%dropped%", String.valueOf(writer.getDroppedEntries())));
+    }
+
+    private static String formatMicros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static String formatDuration(long millis) {
+        long minutes = millis / 60_000L;
+        if (minutes < 60) {
+            return minutes + "m";
+        }
+        return (minutes / 60) + "h " + (minutes % 60) + "m";
+    }
+
+    private UUID resolvePlayer(String name) {
+        try {
+            return UUID.fromString(name);
+        } catch (IllegalArgumentException ignored) {
+            // Not a UUID, look the name up instead
+        }
+
+        OfflinePlayer player = Bukkit.getPlayerExact(name);
+        if (player == null) {
+            player = Bukkit.getOfflinePlayerIfCached(name);
+        }
+        return player != null ? player.getUniqueId() : null;
+    }
+
     @Override
     public @NotNull List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
             @NotNull String label, @NotNull String[] args) {
@@ -106,6 +415,36 @@ public final class Commands implements TabExecutor {
             return result;
         }
 
+        if (args.length == 2 && args[0].equalsIgnoreCase("top")) {
+            List<String> result = new ArrayList<>();
+            for (String option : TOP_RANKINGS) {
+                if (option.startsWith(args[1].toLowerCase())) {
+                    result.add(option);
+                }
+            }
+            return result;
+        }
+
+        if (args.length == 4 && args[0].equalsIgnoreCase("top")) {
+            List<String> result = new ArrayList<>();
+            for (String option : TOP_ACTORS) {
+                if (option.startsWith(args[3].toLowerCase())) {
+                    result.add(option);
+                }
+            }
+            return result;
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("search")) {
+            List<String> result = new ArrayList<>();
+            for (String option : SEARCH_FIELDS) {
+                if (option.startsWith(args[1].toLowerCase())) {
+                    result.add(option);
+                }
+            }
+            return result;
+        }
+
         return new ArrayList<>();
     }
 
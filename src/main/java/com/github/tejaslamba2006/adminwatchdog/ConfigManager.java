@@ -7,27 +7,45 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.AbstractMap;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ConfigManager {
 
-    private static final int CURRENT_CONFIG_VERSION = 1;
+    public static final String NETWORK_NONE = "none";
+    public static final String NETWORK_FORWARDER = "forwarder";
+    public static final String NETWORK_COLLECTOR = "collector";
+
+    private static final int CURRENT_CONFIG_VERSION = 2;
     private static final String CONFIG_VERSION_KEY = "config-version";
 
+    private static final String TIME_PLACEHOLDER = "%time%";
+
     private final AdminWatchdog plugin;
     private FileConfiguration messagesConfig;
     private File messagesFile;
+    private volatile Map<String, MessageTemplate> messageTemplates = Map.of();
+    private final Map<String, MessageTemplate> responseTemplates = new ConcurrentHashMap<>();
+    private volatile MonitoringPolicy policy;
+    private volatile TimestampFormatter timeFormatter;
 
     public ConfigManager(AdminWatchdog plugin) {
         this.plugin = plugin;
         updateConfigIfNeeded();
         loadMessages();
+        policy = buildPolicy();
+        timeFormatter = buildTimeFormatter();
     }
 
     private void loadMessages() {
@@ -36,6 +54,15 @@ public class ConfigManager {
             plugin.saveResource("messages.yml", false);
         }
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
+
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (String path : messagesConfig.getKeys(true)) {
+            if (messagesConfig.isString(path)) {
+                templates.put(path, MessageTemplate.compile(messagesConfig.getString(path)));
+            }
+        }
+        messageTemplates = templates;
+        responseTemplates.clear();
     }
 
     private void updateConfigIfNeeded() {
@@ -106,101 +133,342 @@ public class ConfigManager {
     public void reloadConfigs() {
         updateConfigIfNeeded();
         loadMessages();
+        policy = buildPolicy();
+        timeFormatter = buildTimeFormatter();
+    }
+
+    private TimestampFormatter buildTimeFormatter() {
+        String pattern = plugin.getConfig().getString("general.time-format", TimestampFormatter.DEFAULT_PATTERN);
+        try {
+            return TimestampFormatter.of(pattern, ZoneId.systemDefault());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid general.time-format '" + pattern + "', using "
+                    + TimestampFormatter.DEFAULT_PATTERN + ": " + e.getMessage());
+            return TimestampFormatter.of(TimestampFormatter.DEFAULT_PATTERN, ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * Current monitoring settings. Safe to call from any thread; the snapshot is
+     * replaced as a whole on reload.
+     */
+    public MonitoringPolicy getPolicy() {
+        return policy;
+    }
+
+    private MonitoringPolicy buildPolicy() {
+        FileConfiguration config = plugin.getConfig();
+
+        List<String> playerBlacklist = config.getStringList("monitoring.command-blacklist.player");
+        List<String> consoleBlacklist = config.getStringList("monitoring.command-blacklist.console");
+        // Fallback to old format if new format not found
+        List<String> legacyBlacklist = config.getStringList("monitoring.command-blacklist.commands");
+
+        String[] prefixes = new String[ActorType.values().length];
+        for (ActorType type : ActorType.values()) {
+            prefixes[type.ordinal()] = type == ActorType.CONSOLE ? "" : getPrefix(type.configName());
+        }
+
+        boolean discordEnabled = config.getBoolean("discord.enabled", true);
+        boolean fileLogging = config.getBoolean("logging.file-logging", true);
+        // A forwarder leaves the log file and Discord to the collector unless told otherwise
+        boolean localOutput = !getNetworkMode().equals(NETWORK_FORWARDER) || isNetworkLocalOutput();
+        AuditRouter router = AuditRouter.compile(config.getMapList("routing.rules"), fileLogging && localOutput,
+                discordEnabled && localOutput, getWebhookNames(), plugin.getLogger());
+        // Reports that are not events, like container transfers, are never forwarded and stay local
+        AuditRouter localRouter = localOutput ? router : AuditRouter.compile(config.getMapList("routing.rules"),
+                fileLogging, discordEnabled, getWebhookNames(), quietLogger());
+
+        MaterialWatchlist watchlist = buildWatchlist(config);
+
+        return new MonitoringPolicy(
+                config.getBoolean("monitoring.ops", true),
+                config.getBoolean("monitoring.permissions.enabled", true),
+                config.getStringList("monitoring.permissions.list").toArray(new String[0]),
+                TimeUnit.SECONDS.toMillis(Math.max(0, config.getInt("monitoring.permissions.cache-ttl", 30))),
+                config.getBoolean("monitoring.console", true),
+                config.getBoolean("monitoring.gamemode-changes", true),
+                config.getBoolean("monitoring.all-commands", false),
+                config.getBoolean("monitoring.creative-inventory.enabled", true),
+                config.getBoolean("monitoring.creative-inventory.ops-only", false),
+                config.getBoolean("monitoring.creative-inventory.permissions-only", false),
+                config.getBoolean("monitoring.creative-inventory.detailed-logging", true),
+                watchlist,
+                TimeUnit.SECONDS.toMillis(
+                        Math.max(0, config.getInt("monitoring.creative-inventory.aggregation.window", 4))),
+                TimeUnit.SECONDS.toMillis(config.getInt("monitoring.creative-inventory.aggregation.max-duration", 30)),
+                Math.max(1, config.getInt("monitoring.creative-inventory.aggregation.max-grabs", 100)),
+                config.getBoolean("monitoring.creative-item-drops.enabled", true),
+                config.getBoolean("monitoring.creative-item-drops.track-pickup", true),
+                TimeUnit.SECONDS.toMillis(config.getInt("monitoring.creative-item-drops.tracking-duration", 300)),
+                Math.max(1, config.getInt("monitoring.creative-item-drops.max-tracked", 10000)),
+                config.getBoolean("monitoring.creative-item-drops.track-containers", true),
+                config.getBoolean("monitoring.command-blacklist.enabled", true),
+                toCommandPrefixes(playerBlacklist.isEmpty() ? legacyBlacklist : playerBlacklist),
+                toCommandPrefixes(consoleBlacklist.isEmpty() ? legacyBlacklist : consoleBlacklist),
+                config.getBoolean("custom-responses.enabled", false),
+                compileCustomResponses(config, "custom-responses.player"),
+                compileCustomResponses(config, "custom-responses.console"),
+                discordEnabled,
+                fileLogging,
+                router,
+                localRouter,
+                buildAnomalySettings(config, watchlist, fileLogging && localOutput, discordEnabled && localOutput),
+                config.getBoolean("general.debug", false),
+                prefixes);
+    }
+
+    /**
+     * For compiling the same settings a second time without repeating their warnings.
+     */
+    private static Logger quietLogger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    private MaterialWatchlist buildWatchlist(FileConfiguration config) {
+        String path = "monitoring.creative-inventory.tiers.";
+        String defaultName = config.getString(path + "default", MaterialWatchlist.Tier.ALERT.configName());
+        MaterialWatchlist.Tier fallback = MaterialWatchlist.Tier.fromConfigName(defaultName);
+        if (fallback == null) {
+            plugin.getLogger().warning("Unknown tier '" + defaultName + "' in " + path + "default, using alert");
+            fallback = MaterialWatchlist.Tier.ALERT;
+        }
+
+        Map<MaterialWatchlist.Tier, List<String>> patterns = new EnumMap<>(MaterialWatchlist.Tier.class);
+        for (MaterialWatchlist.Tier tier : MaterialWatchlist.Tier.values()) {
+            patterns.put(tier, config.getStringList(path + tier.configName()));
+        }
+        return MaterialWatchlist.compile(patterns, fallback, plugin.getLogger());
+    }
+
+    private AnomalyDetector.Settings buildAnomalySettings(FileConfiguration config, MaterialWatchlist watchlist,
+            boolean fileLogging, boolean discordEnabled) {
+        String path = "monitoring.anomaly-detection.";
+        Set<String> commands = new HashSet<>();
+        for (String command : config.getStringList(path + "commands")) {
+            commands.add(AuditSegmentIndex.commandRoot(command));
+        }
+        commands.remove(null);
+        List<String> sinks = config.isList(path + "sinks")
+                ? config.getStringList(path + "sinks") : List.of(AuditRouter.FILE_SINK, AuditRouter.DISCORD_SINK);
+        return new AnomalyDetector.Settings(
+                config.getBoolean(path + "enabled", true),
+                TimeUnit.SECONDS.toMillis(Math.max(1, config.getInt(path + "burst-half-life", 60))),
+                TimeUnit.HOURS.toMillis(Math.max(1, config.getInt(path + "baseline-half-life", 24))),
+                Math.max(1.0, config.getDouble(path + "rate-multiplier", 50.0)),
+                Math.max(1, config.getInt(path + "min-events", 20)),
+                Math.max(0.0, config.getDouble(path + "min-baseline-rate", 10.0)) / TimeUnit.HOURS.toMillis(1),
+                Set.copyOf(commands),
+                watchlist.materialNames(MaterialWatchlist.Tier.CRITICAL),
+                Math.max(2, config.getInt(path + "max-recipients", 5)),
+                TimeUnit.MINUTES.toMillis(Math.max(1, config.getInt(path + "recipient-window", 10))),
+                TimeUnit.SECONDS.toMillis(Math.max(0, config.getInt(path + "cooldown", 300))),
+                AuditRouter.compileSinks(sinks, fileLogging, discordEnabled, getWebhookNames(), plugin.getLogger(),
+                        path + "sinks"));
+    }
+
+    private static CommandPatternTrie compileCustomResponses(FileConfiguration config, String sectionPath) {
+        ConfigurationSection section = config.getConfigurationSection(sectionPath);
+
+        // Fallback to old format (direct under custom-responses)
+        if (section == null) {
+            section = config.getConfigurationSection("custom-responses");
+            if (section == null) {
+                return CommandPatternTrie.empty();
+            }
+        }
+
+        Map<String, String> patterns = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            if (!key.equalsIgnoreCase("enabled") && !section.isConfigurationSection(key)) {
+                patterns.put(key, section.getString(key, ""));
+            }
+        }
+        return CommandPatternTrie.compile(patterns);
+    }
+
+    private static CommandPrefixMatcher toCommandPrefixes(List<String> commands) {
+        List<String> prefixes = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            prefixes.add("/" + command);
+        }
+        return CommandPrefixMatcher.compile(prefixes);
     }
 
     public String getMessage(String path) {
-        return messagesConfig.getString(path, "Message not found: " + path);
+        MessageTemplate template = messageTemplates.get(path);
+        return template != null ? template.source() : messagesConfig.getString(path, "Message not found: " + path);
     }
 
+    /**
+     * Renders a message from messages.yml with placeholder/value pairs. %time% is filled in
+     * automatically, and only formatted when the message uses it and no value was passed.
+     */
     public String getMessage(String path, String... placeholders) {
-        String message = getMessage(path);
-        for (int i = 0; i < placeholders.length; i += 2) {
-            if (i + 1 < placeholders.length) {
-                message = message.replace(placeholders[i], placeholders[i + 1]);
+        return getMessage(path, System.currentTimeMillis(), placeholders);
+    }
+
+    /**
+     * Like {@link #getMessage(String, String...)}, with %time% taken from the event's timestamp so
+     * every sink of the same event shows the same time.
+     */
+    public String getMessage(String path, long timestamp, String... placeholders) {
+        MessageTemplate template = messageTemplates.get(path);
+        return template != null ? render(template, timestamp, placeholders) : getMessage(path);
+    }
+
+    /**
+     * Renders a custom command response with placeholder/value pairs, like
+     * {@link #getMessage(String, long, String...)}.
+     */
+    public String formatCustomResponse(String response, long timestamp, String... placeholders) {
+        return render(responseTemplates.computeIfAbsent(response, MessageTemplate::compile), timestamp, placeholders);
+    }
+
+    private String render(MessageTemplate template, long timestamp, String[] placeholders) {
+        long start = System.nanoTime();
+        String message = template.render(placeholder -> {
+            String value = MessageTemplate.valueOf(placeholder, placeholders);
+            if (value == null && placeholder.equals(TIME_PLACEHOLDER)) {
+                value = formatTime(timestamp);
             }
-        }
+            return value;
+        });
+        plugin.getPerformanceStats().recordSince(PerformanceStats.Probe.TEMPLATE_RENDER, start);
         return message;
     }
 
     public String getFormattedTime() {
-        String pattern = plugin.getConfig().getString("general.time-format", "yyyy-MM-dd HH:mm:ss");
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern(pattern));
+        return formatTime(System.currentTimeMillis());
+    }
+
+    public String formatTime(long epochMillis) {
+        return timeFormatter.format(epochMillis);
     }
 
     public boolean isOpsMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.ops", true);
+        return policy.opsMonitoring();
     }
 
     public boolean isPermissionMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.permissions.enabled", true);
+        return policy.permissionMonitoring();
     }
 
     public List<String> getMonitoredPermissions() {
-        return plugin.getConfig().getStringList("monitoring.permissions.list");
+        return List.of(policy.monitoredPermissions());
     }
 
     public boolean isConsoleMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.console", true);
+        return policy.consoleMonitoring();
     }
 
     public boolean isGamemodeMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.gamemode-changes", true);
+        return policy.gamemodeMonitoring();
     }
 
     public boolean isCreativeInventoryMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.creative-inventory.enabled", true);
+        return policy.creativeInventory();
     }
 
     public boolean isCreativeInventoryOpsOnly() {
-        return plugin.getConfig().getBoolean("monitoring.creative-inventory.ops-only", false);
+        return policy.creativeOpsOnly();
     }
 
     public boolean isCreativeInventoryPermissionsOnly() {
-        return plugin.getConfig().getBoolean("monitoring.creative-inventory.permissions-only", false);
+        return policy.creativePermissionsOnly();
     }
 
     public boolean isCreativeInventoryDetailedLogging() {
-        return plugin.getConfig().getBoolean("monitoring.creative-inventory.detailed-logging", true);
+        return policy.creativeDetailedLogging();
+    }
+
+    /**
+     * @return seconds between grabs that are still merged into one burst; 0 when aggregation is off
+     */
+    public int getCreativeInventoryAggregationWindow() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(policy.creativeBurstWindowMillis());
     }
 
     public boolean isCreativeItemDropMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.creative-item-drops.enabled", true);
+        return policy.creativeItemDrops();
     }
 
     public boolean isCreativeItemDropTrackPickup() {
-        return plugin.getConfig().getBoolean("monitoring.creative-item-drops.track-pickup", true);
+        return policy.creativeDropTrackPickup();
     }
 
     public int getCreativeItemDropTrackingDuration() {
-        return plugin.getConfig().getInt("monitoring.creative-item-drops.tracking-duration", 300);
+        return (int) TimeUnit.MILLISECONDS.toSeconds(policy.creativeDropTrackingMillis());
+    }
+
+    public int getCreativeItemDropTrackingCapacity() {
+        return policy.creativeDropTrackingCapacity();
+    }
+
+    public boolean isCreativeItemDropTrackContainers() {
+        return policy.creativeDropTrackContainers();
     }
 
     public boolean isAllCommandsMonitoringEnabled() {
-        return plugin.getConfig().getBoolean("monitoring.all-commands", false);
+        return policy.allCommands();
     }
 
     public boolean isCommandBlacklisted(String command, boolean isConsole) {
-        if (!plugin.getConfig().getBoolean("monitoring.command-blacklist.enabled", true)) {
-            return false;
-        }
+        return policy.isCommandBlacklisted(command, isConsole);
+    }
 
-        String section = isConsole ? "monitoring.command-blacklist.console" : "monitoring.command-blacklist.player";
-        List<String> blacklist = plugin.getConfig().getStringList(section);
+    public boolean isDiscordEnabled() {
+        return policy.discordEnabled();
+    }
 
-        // Fallback to old format if new format not found
-        if (blacklist.isEmpty()) {
-            blacklist = plugin.getConfig().getStringList("monitoring.command-blacklist.commands");
+    public String getWebhookUrl() {
+        return plugin.getConfig().getString("discord.webhook-url", "");
+    }
+
+    /**
+     * @param name {@link AuditRouter#DEFAULT_WEBHOOK} or a name under discord.webhooks
+     */
+    public String getWebhookUrl(String name) {
+        if (name.equals(AuditRouter.DEFAULT_WEBHOOK)) {
+            return getWebhookUrl();
         }
+        return plugin.getConfig().getString("discord.webhooks." + name, "");
+    }
 
-        return blacklist.stream().anyMatch(cmd -> command.toLowerCase().startsWith("/" + cmd.toLowerCase()));
+    public Set<String> getWebhookNames() {
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("discord.webhooks");
+        return section != null ? section.getKeys(false) : Set.of();
     }
 
-    public boolean isDiscordEnabled() {
-        return plugin.getConfig().getBoolean("discord.enabled", true);
+    public int getDiscordQueueCapacity() {
+        return Math.max(16, plugin.getConfig().getInt("discord.dispatcher.queue-capacity", 1000));
     }
 
-    public String getWebhookUrl() {
-        return plugin.getConfig().getString("discord.webhook-url", "");
+    public long getDiscordLingerMillis() {
+        return Math.max(0L, plugin.getConfig().getLong("discord.dispatcher.linger-ms", 250L));
+    }
+
+    public int getDiscordMaxRetries() {
+        return Math.max(0, plugin.getConfig().getInt("discord.dispatcher.max-retries", 5));
+    }
+
+    public boolean isDiscordOutboxEnabled() {
+        return plugin.getConfig().getBoolean("discord.dispatcher.outbox.enabled", true);
+    }
+
+    public int getDiscordOutboxMaxSize() {
+        int megabytes = Math.max(1, Math.min(1024, plugin.getConfig().getInt("discord.dispatcher.outbox.max-size", 16)));
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * How often pending outbox changes are forced to disk; 0 leaves it to the operating system.
+     */
+    public long getDiscordOutboxFsyncInterval() {
+        return Math.max(0L, plugin.getConfig().getLong("discord.dispatcher.outbox.fsync-interval-ms", 5000L));
     }
 
     public boolean isDiscordEmbedsEnabled() {
@@ -228,11 +496,101 @@ public class ConfigManager {
     }
 
     public boolean isFileLoggingEnabled() {
-        return plugin.getConfig().getBoolean("logging.file-logging", true);
+        return policy.fileLogging();
+    }
+
+    public String getLogFileFormat() {
+        return plugin.getConfig().getString("logging.log-file-format", "commands-%date%.log");
+    }
+
+    public int getMaxLogFileSize() {
+        return plugin.getConfig().getInt("logging.max-file-size", 10);
+    }
+
+    public int getKeepOldLogs() {
+        return plugin.getConfig().getInt("logging.keep-old-logs", 5);
+    }
+
+    public boolean isCompressOldLogs() {
+        return plugin.getConfig().getBoolean("logging.compress-old-logs", false);
+    }
+
+    public String getStructuredLogFormat() {
+        return plugin.getConfig().getString("logging.structured.format", "none");
+    }
+
+    public String getStructuredLogFileFormat() {
+        return plugin.getConfig().getString("logging.structured.log-file-format", "events-%date%");
+    }
+
+    public boolean isDatabaseEnabled() {
+        return plugin.getConfig().getBoolean("logging.database.enabled", false);
+    }
+
+    public String getDatabaseFile() {
+        return plugin.getConfig().getString("logging.database.file", "audit.db");
+    }
+
+    /**
+     * @return days of events kept in the database, 0 to keep everything
+     */
+    public int getDatabaseRetentionDays() {
+        return Math.max(0, plugin.getConfig().getInt("logging.database.retention-days", 90));
+    }
+
+    public int getMaxSearchResults() {
+        return Math.max(1, plugin.getConfig().getInt("logging.structured.max-search-results", 20));
+    }
+
+    public int getLogWriterQueueCapacity() {
+        return Math.max(64, plugin.getConfig().getInt("logging.writer.queue-capacity", 8192));
+    }
+
+    public int getLogWriterBatchSize() {
+        return Math.max(1, plugin.getConfig().getInt("logging.writer.batch-size", 256));
+    }
+
+    public long getLogWriterFlushInterval() {
+        return Math.max(10L, plugin.getConfig().getLong("logging.writer.flush-interval-ms", 1000L));
+    }
+
+    public long getLogWriterFsyncInterval() {
+        return Math.max(0L, plugin.getConfig().getLong("logging.writer.fsync-interval-ms", 5000L));
+    }
+
+    public int getEventQueueCapacity() {
+        return Math.max(64, plugin.getConfig().getInt("general.event-queue-capacity", 8192));
+    }
+
+    /**
+     * @return {@link #NETWORK_NONE}, {@link #NETWORK_FORWARDER} or {@link #NETWORK_COLLECTOR}
+     */
+    public String getNetworkMode() {
+        return plugin.getConfig().getString("network.mode", NETWORK_NONE).toLowerCase();
+    }
+
+    public String getNetworkServerName() {
+        return plugin.getConfig().getString("network.server-name", "server");
+    }
+
+    public String getNetworkAddress() {
+        return plugin.getConfig().getString("network.address", "127.0.0.1:25590");
+    }
+
+    public String getNetworkSecret() {
+        return plugin.getConfig().getString("network.secret", "");
+    }
+
+    public int getNetworkQueueCapacity() {
+        return Math.max(64, plugin.getConfig().getInt("network.queue-capacity", 8192));
+    }
+
+    public boolean isNetworkLocalOutput() {
+        return plugin.getConfig().getBoolean("network.local-output", false);
     }
 
     public boolean isDebugEnabled() {
-        return plugin.getConfig().getBoolean("general.debug", false);
+        return policy.debug();
     }
 
     public String getPrefix(String type) {
@@ -284,129 +642,21 @@ public class ConfigManager {
      * @return Map entry with pattern key and response value, or null if no match
      */
     public Map.Entry<String, String> findMatchingCustomResponse(String command, boolean isConsole) {
-        String sectionPath = isConsole ? "custom-responses.console" : "custom-responses.player";
-        ConfigurationSection section = plugin.getConfig().getConfigurationSection(sectionPath);
-
-        // Fallback to old format (direct under custom-responses)
-        if (section == null) {
-            section = plugin.getConfig().getConfigurationSection("custom-responses");
-            if (section == null) {
-                return null;
-            }
-        }
-
-        String cleanCommand = command.toLowerCase().replaceFirst("^/", "");
-
-        List<String> keys = section.getKeys(false).stream()
-                .filter(key -> !key.equalsIgnoreCase("enabled"))
-                .sorted((a, b) -> {
-
-                    int aWords = a.split("\\s+").length;
-                    int bWords = b.split("\\s+").length;
-
-                    if (aWords != bWords) {
-                        return Integer.compare(bWords, aWords);
-                    }
-
-                    boolean aHasWildcard = a.contains("*");
-                    boolean bHasWildcard = b.contains("*");
-                    if (aHasWildcard != bHasWildcard) {
-                        return aHasWildcard ? -1 : 1;
-                    }
-                    return 0;
-                })
-                .toList();
-
-        if (plugin.getConfig().getBoolean("general.debug", false)) {
-            plugin.getLogger()
-                    .info("Matching " + (isConsole ? "console" : "player") + " command: '" + cleanCommand + "'");
-            plugin.getLogger().info("Pattern order: " + keys);
-        }
-
-        for (String key : keys) {
-            String pattern = key.toLowerCase();
-
-            if (pattern.contains("*")) {
-                boolean matches = matchesWildcardPattern(cleanCommand, pattern);
-                if (plugin.getConfig().getBoolean("general.debug", false)) {
-                    plugin.getLogger().info("Testing wildcard pattern '" + pattern + "': " + matches);
-                }
-                if (matches) {
-                    String response = section.getString(key, "");
-                    if (!response.isEmpty()) {
-                        if (plugin.getConfig().getBoolean("general.debug", false)) {
-                            plugin.getLogger().info("Matched pattern: " + pattern);
-                        }
-                        return new AbstractMap.SimpleEntry<>(key, response);
-                    }
-                }
-            }
-
-            else {
-                boolean matches = cleanCommand.equals(pattern) || cleanCommand.startsWith(pattern + " ");
-                if (plugin.getConfig().getBoolean("general.debug", false)) {
-                    plugin.getLogger().info("Testing simple pattern '" + pattern + "': " + matches);
-                }
-                if (matches) {
-                    String response = section.getString(key, "");
-                    if (!response.isEmpty()) {
-                        if (plugin.getConfig().getBoolean("general.debug", false)) {
-                            plugin.getLogger().info("Matched pattern: " + pattern);
-                        }
-                        return new AbstractMap.SimpleEntry<>(key, response);
-                    }
-                }
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Checks if a command matches a wildcard pattern.
-     * Pattern: "lp user * permission set *"
-     * Command: "lp user Steve permission set essentials.fly"
-     * 
-     * @param command The actual command (without leading /)
-     * @param pattern The pattern with * wildcards
-     * @return true if the command matches
-     */
-    private boolean matchesWildcardPattern(String command, String pattern) {
-
-        String[] parts = pattern.split("\\*", -1);
-        StringBuilder regexBuilder = new StringBuilder("^");
-
-        for (int i = 0; i < parts.length; i++) {
-
-            String quotedPart = Pattern.quote(parts[i]);
-            regexBuilder.append(quotedPart);
-
-            if (i < parts.length - 1) {
-                regexBuilder.append("[^\\s]+");
-            }
-        }
-
-        regexBuilder.append("($|\\s.*)");
-
-        String regex = regexBuilder.toString();
-
-        if (plugin.getConfig().getBoolean("general.debug", false)) {
-            plugin.getLogger().info("Pattern: '" + pattern + "' -> Regex: '" + regex + "'");
-        }
-
-        try {
-            boolean matches = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(command).matches();
-            if (plugin.getConfig().getBoolean("general.debug", false)) {
-                plugin.getLogger().info("Command '" + command + "' matches regex: " + matches);
-            }
-            return matches;
-        } catch (Exception e) {
-
-            return command.startsWith(pattern.replace("*", "").trim());
+        MonitoringPolicy current = policy;
+        CommandPatternTrie patterns = isConsole ? current.consoleResponses() : current.playerResponses();
+        long start = System.nanoTime();
+        Map.Entry<String, String> match = patterns.match(command);
+        plugin.getPerformanceStats().recordSince(PerformanceStats.Probe.CUSTOM_RESPONSE_MATCH, start);
+
+        if (current.debug()) {
+            plugin.getLogger().info("Matching " + (isConsole ? "console" : "player") + " command '" + command
+                    + "' against " + patterns.size() + " patterns: "
+                    + (match != null ? "matched '" + match.getKey() + "'" : "no match"));
         }
+        return match;
     }
 
     public boolean isCustomCommandResponsesEnabled() {
-        return plugin.getConfig().getBoolean("custom-responses.enabled", false);
+        return policy.customResponses();
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Follows tracked creative drops through hoppers and other containers. Hoppers fire
+ * {@link InventoryMoveItemEvent} constantly, so this listener is only registered while
+ * {@code creative-item-drops} and {@code track-containers} are both enabled; see
+ * {@link AdminWatchdog#updateContainerTransferListener()}.
+ */
+public final class ContainerTransferListener implements Listener {
+
+    private final AdminWatchdog plugin;
+    private final CommandListener reporter;
+    private final PerformanceStats stats;
+    private final CreativeDropTracker creativeDrops;
+    private final ItemProvenance provenance;
+
+    public ContainerTransferListener(AdminWatchdog plugin, CommandListener reporter) {
+        this.plugin = plugin;
+        this.reporter = reporter;
+        this.stats = plugin.getPerformanceStats();
+        this.creativeDrops = plugin.getCreativeDropTracker();
+        this.provenance = new ItemProvenance(plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        long start = System.nanoTime();
+        try {
+            if (event.isCancelled()) {
+                return;
+            }
+
+            MonitoringPolicy policy = plugin.getConfigManager().getPolicy();
+            if (!policy.creativeItemDrops() || !policy.creativeDropTrackContainers()) {
+                return;
+            }
+
+            // Hoppers are transit; only report where the item comes to rest
+            Inventory destination = event.getDestination();
+            if (destination.getType() == InventoryType.HOPPER) {
+                return;
+            }
+
+            ItemProvenance.Origin origin = provenance.read(event.getItem());
+            if (origin == null) {
+                return;
+            }
+
+            AuditLocation location = AuditLocation.of(destination.getLocation());
+            if (location == null || !creativeDrops.recordTransfer(origin, location, policy)) {
+                return;
+            }
+
+            long timestamp = System.currentTimeMillis();
+            ItemStack moved = event.getItem().clone();
+            String source = event.getSource().getType().name();
+            String target = destination.getType().name();
+            reporter.reportCreativeItemTransfer(origin, moved, source, target, location, timestamp, policy);
+        } finally {
+            stats.recordSince(PerformanceStats.Probe.ITEM_TRANSFER, start);
+        }
+    }
+}
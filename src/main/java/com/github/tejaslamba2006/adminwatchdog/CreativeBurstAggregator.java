@@ -0,0 +1,184 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Merges a player's creative inventory grabs into bursts, so filling a hotbar produces one
+ * summary instead of a line and a webhook per item.
+ * <p>
+ * A burst stays open while grabs keep arriving less than {@code window} apart. It is closed when
+ * the player pauses for longer than that, or early once it spans {@code maxDuration} or holds
+ * {@code maxGrabs} grabs, so a burst never grows without bound and a player who never stops
+ * still gets reported. Closed bursts are handed to the consumer given to the constructor.
+ * <p>
+ * Not thread-safe. {@link CommandListener} only calls it from the audit pipeline, or from the
+ * server thread when there is no pipeline. Only {@link #openBursts()} may be read from elsewhere.
+ *
+ * @param <A> the acting player as the caller captured it
+ */
+public final class CreativeBurstAggregator<A> {
+
+    /**
+     * Creative grabs by one player, in the order the materials were first taken.
+     */
+    public static final class Burst<A> {
+
+        private final A actor;
+        private final ItemStack firstItem;
+        private final long firstAt;
+        private final Map<Material, int[]> materials = new LinkedHashMap<>();
+        private long lastAt;
+        private MaterialWatchlist.Tier tier = MaterialWatchlist.Tier.IGNORE;
+        private int grabs;
+        private int items;
+
+        private Burst(A actor, ItemStack firstItem, long firstAt) {
+            this.actor = actor;
+            this.firstItem = firstItem;
+            this.firstAt = firstAt;
+            this.lastAt = firstAt;
+        }
+
+        private void add(ItemStack item, MaterialWatchlist.Tier itemTier, long timestamp) {
+            lastAt = Math.max(lastAt, timestamp);
+            if (itemTier.compareTo(tier) > 0) {
+                tier = itemTier;
+            }
+            grabs++;
+            items += item.getAmount();
+            materials.computeIfAbsent(item.getType(), material -> new int[1])[0] += item.getAmount();
+        }
+
+        public A actor() {
+            return actor;
+        }
+
+        /**
+         * The grabbed stack when the burst holds a single grab, which is then reported as before.
+         */
+        public ItemStack firstItem() {
+            return firstItem;
+        }
+
+        public long firstAt() {
+            return firstAt;
+        }
+
+        public long lastAt() {
+            return lastAt;
+        }
+
+        /**
+         * The most severe tier of the grabbed materials.
+         */
+        public MaterialWatchlist.Tier tier() {
+            return tier;
+        }
+
+        public int grabs() {
+            return grabs;
+        }
+
+        public int items() {
+            return items;
+        }
+
+        public int materialCount() {
+            return materials.size();
+        }
+
+        /**
+         * @return e.g. "32x stone, 5x dirt", listing the materials with the most items first and
+         *         at most {@code limit} of them
+         */
+        public String describe(int limit) {
+            List<Map.Entry<Material, int[]>> entries = new ArrayList<>(materials.entrySet());
+            entries.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+
+            StringBuilder description = new StringBuilder();
+            int shown = Math.min(limit, entries.size());
+            for (int i = 0; i < shown; i++) {
+                if (i > 0) {
+                    description.append(", ");
+                }
+                Map.Entry<Material, int[]> entry = entries.get(i);
+                description.append(entry.getValue()[0]).append("x ")
+                        .append(entry.getKey().name().toLowerCase().replace('_', ' '));
+            }
+            if (entries.size() > shown) {
+                description.append(" and ").append(entries.size() - shown).append(" more");
+            }
+            return description.toString();
+        }
+    }
+
+    private final Map<UUID, Burst<A>> open = new HashMap<>();
+    private final Consumer<Burst<A>> sink;
+    private volatile int openBursts;
+
+    public CreativeBurstAggregator(Consumer<Burst<A>> sink) {
+        this.sink = sink;
+    }
+
+    public void add(UUID playerUuid, A actor, ItemStack item, MaterialWatchlist.Tier tier, long timestamp,
+            MonitoringPolicy policy) {
+        Burst<A> burst = open.get(playerUuid);
+        if (burst != null && timestamp - burst.lastAt > policy.creativeBurstWindowMillis()) {
+            open.remove(playerUuid);
+            sink.accept(burst);
+            burst = null;
+        }
+
+        if (burst == null) {
+            burst = new Burst<>(actor, item, timestamp);
+            open.put(playerUuid, burst);
+        }
+        burst.add(item, tier, timestamp);
+
+        if (burst.grabs >= policy.creativeBurstMaxGrabs()
+                || burst.lastAt - burst.firstAt >= policy.creativeBurstMaxMillis()) {
+            open.remove(playerUuid);
+            sink.accept(burst);
+        }
+        openBursts = open.size();
+    }
+
+    /**
+     * Closes every burst whose player has been idle for longer than the window.
+     */
+    public void flushIdle(long now, MonitoringPolicy policy) {
+        Iterator<Burst<A>> bursts = open.values().iterator();
+        while (bursts.hasNext()) {
+            Burst<A> burst = bursts.next();
+            if (now - burst.lastAt > policy.creativeBurstWindowMillis()) {
+                bursts.remove();
+                sink.accept(burst);
+            }
+        }
+        openBursts = open.size();
+    }
+
+    public void flushAll() {
+        List<Burst<A>> bursts = new ArrayList<>(open.values());
+        open.clear();
+        openBursts = 0;
+        bursts.forEach(sink);
+    }
+
+    /**
+     * Number of bursts waiting to be closed, as of the last call. Safe to read from any thread.
+     */
+    public int openBursts() {
+        return openBursts;
+    }
+}
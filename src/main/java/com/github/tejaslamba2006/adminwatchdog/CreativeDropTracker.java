@@ -0,0 +1,152 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers who dropped which item entity carrying an {@link ItemProvenance} marker, so a later
+ * pickup by someone else can be reported. Entries hold a compact descriptor (material, amount, meta hash) instead of
+ * a cloned ItemStack, and the tracker never holds more than its capacity: when full, the oldest
+ * drop is evicted.
+ * <p>
+ * Every drop is tracked for the same duration, so insertion order is also expiry order and
+ * expiring is a matter of removing entries from the head until the first one that is still
+ * live, which is O(1) per expired entry with no periodic full scans.
+ * <p>
+ * It also remembers which marked items recently arrived in which containers, so a hopper moving a
+ * stack one item at a time reports the transfer once. That set is bounded by the same capacity.
+ * <p>
+ * Drop, pickup and inventory move events, the expiry task and {@code /aw stats} all run on the server thread,
+ * so the tracker is confined to it and needs no locking.
+ */
+public final class CreativeDropTracker {
+
+    /**
+     * What is remembered about a dropped item entity.
+     */
+    public record TrackedDrop(UUID dropperUuid, String dropperName, Material material, int amount,
+            int metaHash, long dropTime) {
+
+        /**
+         * Whether {@code item} is still the stack that was dropped (ignoring amount, which
+         * changes when stacks merge or are partly picked up).
+         */
+        public boolean matches(ItemStack item) {
+            return item.getType() == material && CreativeDropTracker.metaHash(item) == metaHash;
+        }
+    }
+
+    private record Transfer(UUID origin, long droppedAt, AuditLocation destination) {
+    }
+
+    private final Map<UUID, TrackedDrop> drops = new LinkedHashMap<>();
+    private final Map<Transfer, Boolean> recentTransfers = new LinkedHashMap<>();
+    private long tracked;
+    private long matched;
+    private long expired;
+    private long evicted;
+    private long transfers;
+
+    public static int metaHash(ItemStack item) {
+        return item.hasItemMeta() ? item.getItemMeta().hashCode() : 0;
+    }
+
+    /**
+     * Starts tracking a dropped item entity, evicting the oldest drop if the tracker is full.
+     */
+    public void track(UUID entityUuid, UUID dropperUuid, String dropperName, ItemStack item, long now,
+            MonitoringPolicy policy) {
+        expire(now, policy.creativeDropTrackingMillis());
+
+        int capacity = policy.creativeDropTrackingCapacity();
+        Iterator<TrackedDrop> oldest = drops.values().iterator();
+        while (drops.size() >= capacity && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+            evicted++;
+        }
+
+        drops.put(entityUuid, new TrackedDrop(dropperUuid, dropperName, item.getType(), item.getAmount(),
+                metaHash(item), now));
+        tracked++;
+    }
+
+    /**
+     * @param remaining items left on the ground after the pickup; the drop stays tracked if any are
+     * @return the drop, or null if the entity is not tracked or has expired
+     */
+    public TrackedDrop pickup(UUID entityUuid, int remaining, long now, MonitoringPolicy policy) {
+        expire(now, policy.creativeDropTrackingMillis());
+
+        return remaining > 0 ? drops.get(entityUuid) : drops.remove(entityUuid);
+    }
+
+    /**
+     * Counts a pickup that was reported. Called by the listener once it has ruled out the dropper
+     * picking up their own item and a stack that no longer matches the drop.
+     */
+    public void recordMatch() {
+        matched++;
+    }
+
+    /**
+     * @return whether this is the first time the marked item arrived in {@code destination} recently
+     */
+    public boolean recordTransfer(ItemProvenance.Origin origin, AuditLocation destination, MonitoringPolicy policy) {
+        Transfer transfer = new Transfer(origin.playerUuid(), origin.droppedAt(), destination);
+        if (recentTransfers.putIfAbsent(transfer, Boolean.TRUE) != null) {
+            return false;
+        }
+
+        Iterator<Transfer> oldest = recentTransfers.keySet().iterator();
+        while (recentTransfers.size() > policy.creativeDropTrackingCapacity()) {
+            oldest.next();
+            oldest.remove();
+        }
+        transfers++;
+        return true;
+    }
+
+    /**
+     * Forgets every drop older than {@code trackingMillis}.
+     */
+    public void expire(long now, long trackingMillis) {
+        Iterator<TrackedDrop> oldest = drops.values().iterator();
+        while (oldest.hasNext()) {
+            if (now - oldest.next().dropTime() <= trackingMillis) {
+                return;
+            }
+            oldest.remove();
+            expired++;
+        }
+    }
+
+    public int size() {
+        return drops.size();
+    }
+
+    public long getTracked() {
+        return tracked;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+}
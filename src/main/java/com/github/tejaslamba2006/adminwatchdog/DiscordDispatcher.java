@@ -0,0 +1,517 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Delivers messages to one Discord webhook from a single virtual thread.
+ * <p>
+ * Messages wait in a bounded backlog, in memory or in a {@link DiscordOutbox} on disk, and are
+ * packed into as few requests as possible: plain lines are joined into one message of up to
+ * 2000 characters, embeds are sent up to 10 and 6000 characters per request. Requests are paced
+ * by a token bucket that follows Discord's X-RateLimit-* headers, 429 responses are retried after
+ * Retry-After and network or server errors are retried with exponential backoff. A batch that
+ * Discord rejects as malformed is sent again one message at a time. Enqueueing never blocks;
+ * messages are dropped and counted when the backlog is full.
+ */
+public final class DiscordDispatcher {
+
+    public static final int MAX_CONTENT_LENGTH = 2000;
+    public static final int MAX_EMBEDS = 10;
+    // Discord's limit on the text of all embeds in one message; the JSON length is an upper bound for it
+    public static final int MAX_EMBED_TEXT = 6000;
+
+    // Discord's webhook limit until the first response tells us otherwise
+    private static final int DEFAULT_BUCKET_SIZE = 5;
+    private static final long DEFAULT_BUCKET_RESET_MILLIS = 2000L;
+    private static final long INITIAL_BACKOFF_MILLIS = 500L;
+    private static final long MAX_BACKOFF_MILLIS = 30_000L;
+
+    /**
+     * @param maxRetries retries before a batch is dropped; ignored with a durable backlog
+     */
+    public record Settings(long lingerMillis, int maxRetries) {
+    }
+
+    /**
+     * A plain text line, or with {@code embed} set a single embed object in JSON.
+     *
+     * @param end backlog position just past this message, used to acknowledge it
+     */
+    record Message(String body, boolean embed, long end) {
+    }
+
+    /**
+     * Holds messages until they are delivered. Any thread may offer; only the dispatcher
+     * thread polls and acknowledges. Polled messages stay in a durable backlog until acknowledged.
+     */
+    interface Backlog {
+        boolean offer(String body, boolean embed);
+
+        Message poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+        Message poll();
+
+        /**
+         * Marks everything up to and including {@code last} as done.
+         */
+        void acknowledge(Message last, int count);
+
+        /**
+         * Messages that are waiting or in flight.
+         */
+        int size();
+
+        boolean isDurable();
+
+        void close();
+    }
+
+    private record Response(int status, long retryAfterMillis) {
+    }
+
+    private final Logger logger;
+    private final URI webhook;
+    private final Settings settings;
+    private final Backlog backlog;
+    private final HttpClient client;
+    private final Thread thread;
+    private final LatencyRecorder requestLatency;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong deliveredMessages = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private volatile boolean running = true;
+    // Guards the shutdown interrupt so it cannot land once the drain has started
+    private final Object drainLock = new Object();
+    private boolean draining;
+
+    // Only touched by the dispatcher thread
+    private Message carried;
+    private final JsonWriter payload = new JsonWriter();
+    private int bucketSize = DEFAULT_BUCKET_SIZE;
+    private int tokens = DEFAULT_BUCKET_SIZE;
+    private long bucketResetAt;
+
+    /**
+     * @param requestLatency records the round trip of every webhook request
+     */
+    public DiscordDispatcher(Logger logger, String name, URI webhook, Settings settings, HttpClient client,
+            Backlog backlog, LatencyRecorder requestLatency) {
+        this.logger = logger;
+        this.webhook = webhook;
+        this.settings = settings;
+        this.client = client;
+        this.backlog = backlog;
+        this.requestLatency = requestLatency;
+        // Mostly waits on the network and the rate limit, so it does not need a platform thread
+        this.thread = Thread.ofVirtual().name("AdminWatchdog-" + name).unstarted(this::run);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public boolean enqueueText(String line) {
+        if (line == null || line.isEmpty()) {
+            return false;
+        }
+        if (line.length() > MAX_CONTENT_LENGTH) {
+            line = line.substring(0, MAX_CONTENT_LENGTH - 3) + "...";
+        }
+        return enqueue(line, false);
+    }
+
+    /**
+     * @param embedJson a single embed object, e.g. {"title":"...","fields":[...]}
+     */
+    public boolean enqueueEmbed(String embedJson) {
+        return enqueue(embedJson, true);
+    }
+
+    /**
+     * In-heap backlog that loses its messages on shutdown once the drain time is up.
+     */
+    public static Backlog memoryBacklog(int capacity) {
+        return new MemoryBacklog(capacity);
+    }
+
+    private boolean enqueue(String body, boolean embed) {
+        if (!running || !backlog.offer(body, embed)) {
+            droppedMessages.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting messages. A durable backlog keeps the rest for the next start,
+     * an in-memory one gets a few seconds to drain.
+     */
+    public void shutdown() {
+        synchronized (drainLock) {
+            running = false;
+            if (!draining) {
+                thread.interrupt();
+            }
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        backlog.close();
+    }
+
+    public URI getWebhook() {
+        return webhook;
+    }
+
+    public int getQueueDepth() {
+        return backlog.size();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getDeliveredMessages() {
+        return deliveredMessages.get();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    Backlog getBacklog() {
+        return backlog;
+    }
+
+    private void run() {
+        List<Message> interrupted = null;
+        while (running) {
+            List<Message> batch = null;
+            try {
+                if (carried == null) {
+                    carried = backlog.poll(1, TimeUnit.SECONDS);
+                    if (carried == null) {
+                        continue;
+                    }
+                }
+
+                // Give a burst a moment to arrive so it leaves in one request
+                if (settings.lingerMillis() > 0) {
+                    Thread.sleep(settings.lingerMillis());
+                }
+
+                batch = collectBatch();
+                send(batch);
+                backlog.acknowledge(batch.get(batch.size() - 1), batch.size());
+            } catch (InterruptedException e) {
+                // shutdown() interrupts to cut rate limit and backoff waits short
+                interrupted = batch;
+                break;
+            }
+        }
+
+        // However the loop ended, an in-memory backlog is drained before it is lost
+        synchronized (drainLock) {
+            draining = true;
+        }
+        Thread.interrupted();
+        if (!backlog.isDurable()) {
+            drainOnShutdown(interrupted);
+        }
+    }
+
+    /**
+     * Sends the interrupted batch and whatever is still queued once each, without waiting
+     * for rate limits or retrying.
+     */
+    private void drainOnShutdown(List<Message> interrupted) {
+        List<Message> batch = interrupted;
+        while (batch != null || carried != null || (carried = backlog.poll()) != null) {
+            if (batch == null) {
+                batch = collectBatch();
+            }
+            try {
+                Response response = post(buildPayload(batch));
+                requests.incrementAndGet();
+                if (response.status() >= 200 && response.status() < 300) {
+                    deliveredMessages.addAndGet(batch.size());
+                } else {
+                    failedMessages.addAndGet(batch.size());
+                }
+            } catch (IOException e) {
+                failedMessages.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                failedMessages.addAndGet(batch.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backlog.acknowledge(batch.get(batch.size() - 1), batch.size());
+            batch = null;
+        }
+    }
+
+    /**
+     * Starts a batch with the carried message and adds consecutive messages of the same kind
+     * that fit into one request. The first message that does not fit is carried into the next
+     * batch so ordering is preserved.
+     */
+    private List<Message> collectBatch() {
+        Message first = carried;
+        carried = null;
+
+        List<Message> batch = new ArrayList<>();
+        batch.add(first);
+        int contentLength = first.body().length();
+
+        Message next;
+        while ((next = backlog.poll()) != null) {
+            if (next.embed() != first.embed() || (first.embed()
+                    ? batch.size() >= MAX_EMBEDS || contentLength + next.body().length() > MAX_EMBED_TEXT
+                    : contentLength + 1 + next.body().length() > MAX_CONTENT_LENGTH)) {
+                carried = next;
+                break;
+            }
+            batch.add(next);
+            contentLength += (first.embed() ? 0 : 1) + next.body().length();
+        }
+        return batch;
+    }
+
+    /**
+     * Delivers a batch. When Discord rejects a batch of several messages as malformed, each is sent
+     * on its own, so one bad message or a limit the batching did not foresee costs only that message.
+     */
+    private void send(List<Message> batch) throws InterruptedException {
+        int status = deliver(buildPayload(batch), batch.size());
+        if (status == 0) {
+            return;
+        }
+        if (status != 400 || batch.size() == 1) {
+            reject(batch.size(), status);
+            return;
+        }
+
+        for (Message message : batch) {
+            int single = deliver(buildPayload(List.of(message)), 1);
+            if (single != 0) {
+                reject(1, single);
+            }
+        }
+    }
+
+    private void reject(int messageCount, int status) {
+        failedMessages.addAndGet(messageCount);
+        logger.warning("Discord webhook rejected " + messageCount + " message(s) (HTTP " + status + ")");
+    }
+
+    /**
+     * Encodes the batch into the dispatcher's reusable payload buffer.
+     */
+    private JsonWriter buildPayload(List<Message> batch) {
+        JsonWriter json = payload.reset().beginObject();
+        if (batch.get(0).embed()) {
+            json.name("embeds").beginArray();
+            for (Message message : batch) {
+                json.rawValue(message.body());
+            }
+            json.endArray();
+        } else {
+            json.name("content").beginString();
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    json.append("\n");
+                }
+                json.append(batch.get(i).body());
+            }
+            json.endString();
+        }
+        return json.name("allowed_mentions").beginObject()
+                .name("parse").beginArray().value("users").value("roles").value("everyone").endArray()
+                .endObject()
+                .endObject();
+    }
+
+    /**
+     * Sends a payload until it is delivered or given up on; either way its messages are counted.
+     *
+     * @return 0, or the status if Discord rejected the payload with a 4xx other than 429, in which
+     *         case the messages are not counted yet
+     */
+    private int deliver(JsonWriter payload, int messageCount) throws InterruptedException {
+        int attempt = 0;
+        while (true) {
+            acquireToken();
+
+            Response response;
+            try {
+                response = post(payload);
+                requests.incrementAndGet();
+            } catch (IOException e) {
+                response = null;
+                logger.fine("Discord webhook request failed: " + e.getMessage());
+            }
+
+            if (response != null && response.status() >= 200 && response.status() < 300) {
+                deliveredMessages.addAndGet(messageCount);
+                return 0;
+            }
+
+            if (response != null && response.status() >= 400 && response.status() < 500
+                    && response.status() != 429) {
+                // Bad payload or deleted webhook, retrying will not help
+                return response.status();
+            }
+
+            // A durable backlog keeps retrying through an outage instead of dropping messages
+            if (attempt++ >= settings.maxRetries() && !backlog.isDurable()) {
+                failedMessages.addAndGet(messageCount);
+                logger.warning("Giving up on Discord webhook after " + attempt + " attempts"
+                        + (response != null ? " (HTTP " + response.status() + ")" : "")
+                        + ", dropped " + messageCount + " message(s)");
+                return 0;
+            }
+
+            if (response != null && response.status() == 429) {
+                rateLimited.incrementAndGet();
+                tokens = 0;
+                bucketResetAt = System.currentTimeMillis() + response.retryAfterMillis();
+            } else {
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+                Thread.sleep(backoff);
+            }
+            retries.incrementAndGet();
+        }
+    }
+
+    private void acquireToken() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        if (now >= bucketResetAt) {
+            tokens = bucketSize;
+            bucketResetAt = now + DEFAULT_BUCKET_RESET_MILLIS;
+        }
+        if (tokens <= 0) {
+            Thread.sleep(Math.max(0L, bucketResetAt - now));
+            tokens = bucketSize;
+            bucketResetAt = System.currentTimeMillis() + DEFAULT_BUCKET_RESET_MILLIS;
+        }
+        tokens--;
+    }
+
+    private Response post(JsonWriter payload) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(webhook)
+                .timeout(HttpTransport.REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "AdminWatchdog-Plugin/1.0")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload.array(), 0, payload.length()))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        requestLatency.recordSince(start);
+        HttpHeaders headers = response.headers();
+        updateBucket(headers);
+        long retryAfter = parseSeconds(headers.firstValue("Retry-After").orElse(null), DEFAULT_BUCKET_RESET_MILLIS);
+        return new Response(response.statusCode(), retryAfter);
+    }
+
+    private void updateBucket(HttpHeaders headers) {
+        try {
+            OptionalLong limit = headers.firstValueAsLong("X-RateLimit-Limit");
+            if (limit.isPresent()) {
+                bucketSize = (int) Math.max(1L, limit.getAsLong());
+            }
+            OptionalLong remaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+            if (remaining.isPresent()) {
+                tokens = (int) Math.max(0L, remaining.getAsLong());
+            }
+        } catch (NumberFormatException e) {
+            return;
+        }
+        headers.firstValue("X-RateLimit-Reset-After").ifPresent(resetAfter -> bucketResetAt =
+                System.currentTimeMillis() + parseSeconds(resetAfter, DEFAULT_BUCKET_RESET_MILLIS));
+    }
+
+    private static long parseSeconds(String value, long fallbackMillis) {
+        if (value == null) {
+            return fallbackMillis;
+        }
+        try {
+            return (long) Math.ceil(Double.parseDouble(value.trim()) * 1000.0);
+        } catch (NumberFormatException e) {
+            return fallbackMillis;
+        }
+    }
+
+    private static final class MemoryBacklog implements Backlog {
+        private final BlockingQueue<Message> queue;
+
+        private MemoryBacklog(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        @Override
+        public boolean offer(String body, boolean embed) {
+            return queue.offer(new Message(body, embed, 0L));
+        }
+
+        @Override
+        public Message poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        @Override
+        public Message poll() {
+            return queue.poll();
+        }
+
+        @Override
+        public void acknowledge(Message last, int count) {
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean isDurable() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -3,19 +3,19 @@ package com.github.tejaslamba2006.adminwatchdog;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
+import java.io.File;
+import java.io.IOException;
 import java.net.URI;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public final class DiscordManager {
 
-    private static final String TIME_PLACEHOLDER = "%time%";
     private static final String PLAYER_PLACEHOLDER = "%player%";
     private static final String COMMAND_PLACEHOLDER = "%command%";
     private static final String SENDER_PLACEHOLDER = "%sender%";
@@ -24,125 +24,318 @@ public final class DiscordManager {
 
     private final AdminWatchdog plugin;
     private final MinecraftApiHelper apiHelper;
+    private final Map<String, DiscordDispatcher> dispatchers = new LinkedHashMap<>();
+    private final Map<String, Object> replacementLocks = new ConcurrentHashMap<>();
+    private boolean closed;
 
     public DiscordManager(AdminWatchdog plugin) {
         this.plugin = plugin;
         this.apiHelper = new MinecraftApiHelper();
+        startOutboxForceTask();
     }
 
+    /**
+     * Checks every second; each outbox is forced at most once per discord.dispatcher.outbox.fsync-interval-ms.
+     */
+    private void startOutboxForceTask() {
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::forceOutboxes, 20L, 20L);
+    }
+
+    private void forceOutboxes() {
+        long interval = plugin.getConfigManager().getDiscordOutboxFsyncInterval();
+        if (interval <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (DiscordDispatcher dispatcher : getCurrentDispatchers().values()) {
+            if (dispatcher.getBacklog() instanceof DiscordOutbox outbox) {
+                outbox.force(now, interval);
+            }
+        }
+    }
+
+    /**
+     * Sends to the default webhook, for messages that are not routed such as custom responses.
+     */
     public void sendToDiscord(String message) {
-        CompletableFuture.runAsync(() -> {
-            if (!plugin.getConfigManager().isDiscordEnabled())
-                return;
-
-            String webhookUrl = plugin.getConfigManager().getWebhookUrl();
-            if (webhookUrl == null || webhookUrl.isEmpty()) {
-                plugin.getLogger().warning(plugin.getConfigManager().getMessage("errors.webhook-not-set"));
-                return;
+        if (!plugin.getConfigManager().isDiscordEnabled()) {
+            return;
+        }
+
+        DiscordDispatcher target = getDispatcher(AuditRouter.DEFAULT_WEBHOOK);
+        if (target != null) {
+            target.enqueueText(message);
+        }
+    }
+
+    /**
+     * Sends to every webhook of the route. Each webhook has its own dispatcher and backlog, so a
+     * slow or failing one does not hold up the others.
+     */
+    public void sendToDiscord(AuditRouter.Route route, String message) {
+        for (String name : route.webhooks()) {
+            DiscordDispatcher target = getDispatcher(name);
+            if (target != null) {
+                target.enqueueText(message);
             }
+        }
+    }
 
-            try {
-                URL url = URI.create(webhookUrl).toURL();
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    /**
+     * The running dispatchers by webhook name, without creating any.
+     */
+    public synchronized Map<String, DiscordDispatcher> getCurrentDispatchers() {
+        return new LinkedHashMap<>(dispatchers);
+    }
 
-                connection.setRequestMethod("POST");
-                connection.setDoOutput(true);
-                connection.setRequestProperty("Content-Type", "application/json");
+    /**
+     * The dispatcher for a webhook. It is replaced when the webhook URL changes on reload.
+     *
+     * @param name {@link AuditRouter#DEFAULT_WEBHOOK} or a name under discord.webhooks
+     * @return the dispatcher, or null if the webhook is not configured
+     */
+    public DiscordDispatcher getDispatcher(String name) {
+        String webhookUrl = plugin.getConfigManager().getWebhookUrl(name);
+        if (webhookUrl == null || webhookUrl.isEmpty()) {
+            plugin.getLogger().warning(plugin.getConfigManager().getMessage("errors.webhook-not-set"));
+            retire(name);
+            return null;
+        }
 
-                
-                String jsonPayload = String.format(
-                        "{\"content\":\"%s\",\"allowed_mentions\":{\"parse\":[\"users\",\"roles\",\"everyone\"]}}",
-                        safeJsonString(message));
+        DiscordDispatcher dispatcher = current(name, webhookUrl);
+        if (dispatcher != null) {
+            return dispatcher;
+        }
+
+        URI webhook;
+        try {
+            webhook = URI.create(webhookUrl);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid Discord webhook URL: " + e.getMessage());
+            return null;
+        }
 
-                try (OutputStream os = connection.getOutputStream()) {
-                    os.write(jsonPayload.getBytes(StandardCharsets.UTF_8));
-                    os.flush();
+        // The outbox file can only be open once, so the old dispatcher is shut down before the new one
+        // opens it and its pending messages move to the new webhook. Only senders to this webhook wait
+        synchronized (replacementLock(name)) {
+            DiscordDispatcher retired;
+            synchronized (this) {
+                dispatcher = current(name, webhookUrl);
+                if (dispatcher != null) {
+                    return dispatcher;
                 }
+                retired = dispatchers.remove(name);
+            }
+            if (retired != null) {
+                retired.shutdown();
+            }
 
-                int responseCode = connection.getResponseCode();
-                if (responseCode != 204) {
-                    String errorMessage = plugin.getConfigManager().getMessage("errors.webhook-failed", "%code%",
-                            String.valueOf(responseCode));
-                    plugin.getLogger().warning(errorMessage);
+            boolean isDefault = name.equals(AuditRouter.DEFAULT_WEBHOOK);
+            dispatcher = new DiscordDispatcher(plugin.getLogger(), isDefault ? "Discord" : "Discord-" + name,
+                    webhook,
+                    new DiscordDispatcher.Settings(
+                            plugin.getConfigManager().getDiscordLingerMillis(),
+                            plugin.getConfigManager().getDiscordMaxRetries()),
+                    plugin.getHttpTransport().client(),
+                    createBacklog(isDefault ? "discord" : "discord-" + name),
+                    plugin.getPerformanceStats().get(PerformanceStats.Probe.DISCORD_REQUEST));
+            synchronized (this) {
+                if (closed) {
+                    dispatcher.shutdown();
+                    return null;
                 }
+                dispatcher.start();
+                dispatchers.put(name, dispatcher);
+            }
+            return dispatcher;
+        }
+    }
 
-            } catch (Exception e) {
+    private synchronized DiscordDispatcher current(String name, String webhookUrl) {
+        DiscordDispatcher dispatcher = dispatchers.get(name);
+        return dispatcher != null && dispatcher.getWebhook().toString().equals(webhookUrl) ? dispatcher : null;
+    }
+
+    private Object replacementLock(String name) {
+        return replacementLocks.computeIfAbsent(name, key -> new Object());
+    }
+
+    /**
+     * Removes a webhook's dispatcher and shuts it down, outside the manager lock so other
+     * webhooks are not held up while it finishes.
+     */
+    private void retire(String name) {
+        synchronized (replacementLock(name)) {
+            DiscordDispatcher retired;
+            synchronized (this) {
+                retired = dispatchers.remove(name);
+            }
+            if (retired != null) {
+                retired.shutdown();
+            }
+        }
+    }
+
+    /**
+     * After a reload, shuts down the dispatchers of webhooks that were removed, cleared or given a
+     * new URL, in the background. Webhooks still in use are started again on their next message.
+     */
+    public void reload() {
+        ConfigManager config = plugin.getConfigManager();
+        List<String> stale = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, DiscordDispatcher> entry : dispatchers.entrySet()) {
+                String webhookUrl = config.getWebhookUrl(entry.getKey());
+                if (!config.isDiscordEnabled() || webhookUrl == null
+                        || !entry.getValue().getWebhook().toString().equals(webhookUrl)) {
+                    stale.add(entry.getKey());
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> stale.forEach(this::retire));
+        }
+    }
+
+    private DiscordDispatcher.Backlog createBacklog(String name) {
+        if (plugin.getConfigManager().isDiscordOutboxEnabled()) {
+            File file = new File(new File(plugin.getDataFolder(), "outbox"), name + ".outbox");
+            try {
+                return DiscordOutbox.open(file, plugin.getConfigManager().getDiscordOutboxMaxSize(), plugin.getLogger());
+            } catch (IOException | RuntimeException e) {
+                // A damaged outbox must not stop Discord output
+                plugin.getLogger().warning("Failed to open Discord outbox " + file.getName()
+                        + ", messages will only be queued in memory: " + e.getMessage());
                 if (plugin.getConfigManager().isDebugEnabled()) {
                     e.printStackTrace();
                 }
             }
-        });
+        }
+        return DiscordDispatcher.memoryBacklog(plugin.getConfigManager().getDiscordQueueCapacity());
+    }
+
+    public void shutdown() {
+        List<DiscordDispatcher> running;
+        synchronized (this) {
+            closed = true;
+            running = new ArrayList<>(dispatchers.values());
+            dispatchers.clear();
+        }
+        for (DiscordDispatcher dispatcher : running) {
+            dispatcher.shutdown();
+        }
     }
 
-    public void sendGamemodeChange(String playerName, String oldMode, String newMode) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        String message = plugin.getConfigManager().getMessage("discord.gamemode-change",
+    public void sendGamemodeChange(AuditRouter.Route route, long timestamp, String playerName, String oldMode,
+            String newMode) {
+        if (!route.discord()) {
+            return;
+        }
+
+        String message = plugin.getConfigManager().getMessage("discord.gamemode-change", timestamp,
                 PLAYER_PLACEHOLDER, playerName,
                 "%oldmode%", oldMode,
-                "%newmode%", newMode,
-                TIME_PLACEHOLDER, time);
-        sendToDiscord(message);
+                "%newmode%", newMode);
+        sendToDiscord(route, message);
+    }
+
+    /**
+     * @param messageKey   the messages.yml entry for the kind of anomaly
+     * @param placeholders the alert's placeholders and values
+     */
+    public void sendAnomaly(AuditRouter.Route route, long timestamp, String messageKey, String... placeholders) {
+        if (!route.discord()) {
+            return;
+        }
+
+        sendToDiscord(route, plugin.getConfigManager().getMessage(messageKey, timestamp, placeholders));
     }
 
-    public void sendConsoleCommand(String senderName, String command) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        String message = plugin.getConfigManager().getMessage("discord.console-command",
+    public void sendConsoleCommand(AuditRouter.Route route, long timestamp, String senderName, String command) {
+        if (!route.discord()) {
+            return;
+        }
+
+        String message = plugin.getConfigManager().getMessage("discord.console-command", timestamp,
                 SENDER_PLACEHOLDER, senderName,
-                COMMAND_PLACEHOLDER, command,
-                TIME_PLACEHOLDER, time);
-        sendToDiscord(message);
+                COMMAND_PLACEHOLDER, command);
+        sendToDiscord(route, message);
     }
 
-    public void sendPlayerCommand(String playerName, String command, boolean hasPermission) {
-        String time = plugin.getConfigManager().getFormattedTime();
+    public void sendPlayerCommand(AuditRouter.Route route, long timestamp, String playerName, String command,
+            boolean hasPermission) {
+        if (!route.discord()) {
+            return;
+        }
+
         String messageKey = hasPermission ? "discord.permission-command" : "discord.player-command";
-        String message = plugin.getConfigManager().getMessage(messageKey,
+        String message = plugin.getConfigManager().getMessage(messageKey, timestamp,
                 PLAYER_PLACEHOLDER, playerName,
-                COMMAND_PLACEHOLDER, command,
-                TIME_PLACEHOLDER, time);
+                COMMAND_PLACEHOLDER, command);
 
-        sendToDiscord(message);
+        sendToDiscord(route, message);
     }
 
-    public void sendCreativeInventoryAction(String playerName, ItemStack item) {
-        if (!plugin.getConfigManager().isDiscordEnabled()) {
+    public void sendCreativeInventoryAction(AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
+        if (!route.discord()) {
             return;
         }
 
         if (plugin.getConfigManager().isDiscordEmbedsEnabled()
                 && plugin.getConfigManager().isCreativeInventoryEmbedsEnabled()) {
-            sendCreativeInventoryEmbed(playerName, item);
+            sendCreativeInventoryEmbed(route, timestamp, playerName, item);
         } else {
-            sendCreativeInventorySimple(playerName, item);
+            sendCreativeInventorySimple(route, timestamp, playerName, item);
+        }
+    }
+
+    /**
+     * Several creative grabs merged by {@link CreativeBurstAggregator}. Always sent as plain text.
+     */
+    public void sendCreativeInventoryBurst(AuditRouter.Route route, long timestamp, String playerName,
+            String amount, String materials, String duration, String items) {
+        if (!route.discord()) {
+            return;
         }
+
+        sendToDiscord(route, plugin.getConfigManager().getMessage("discord.creative-inventory-burst", timestamp,
+                PLAYER_PLACEHOLDER, playerName,
+                "%amount%", amount,
+                "%materials%", materials,
+                "%duration%", duration,
+                "%items%", items));
     }
 
-    private void sendCreativeInventoryEmbed(String playerName, ItemStack item) {
+    private void sendCreativeInventoryEmbed(AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
         CompletableFuture<MinecraftApiHelper.ItemData> itemDataFuture = apiHelper.getItemData(item);
 
         itemDataFuture.thenAcceptAsync(itemData -> {
             try {
-                String embedJson = createCreativeInventoryEmbed(playerName, item, itemData);
-                sendJsonToDiscord(embedJson);
+                String embedJson = createCreativeInventoryEmbed(timestamp, playerName, item, itemData);
+                sendEmbedToDiscord(route, embedJson);
             } catch (Exception e) {
-                handleEmbedError(e, playerName, item);
+                handleEmbedError(e, route, timestamp, playerName, item);
             }
-        }).exceptionally(ex -> {
-            handleEmbedError(ex, playerName, item);
+        }, plugin.getHttpTransport().executor()).exceptionally(ex -> {
+            handleEmbedError(ex, route, timestamp, playerName, item);
             return null;
         });
     }
 
-    private void handleEmbedError(Throwable e, String playerName, ItemStack item) {
+    private void handleEmbedError(Throwable e, AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
         if (plugin.getConfigManager().isFallbackToSimple()) {
-            sendCreativeInventorySimple(playerName, item);
+            sendCreativeInventorySimple(route, timestamp, playerName, item);
         } else if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().warning("Failed to send embed: " + e.getMessage());
         }
     }
 
-    private void sendCreativeInventorySimple(String playerName, ItemStack item) {
-        String time = plugin.getConfigManager().getFormattedTime();
+    private void sendCreativeInventorySimple(AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
         String itemName = getItemDisplayName(item);
         String materialName = item.getType().name();
         int amount = item.getAmount();
@@ -151,117 +344,104 @@ public final class DiscordManager {
                 ? "discord.creative-inventory-detailed"
                 : "discord.creative-inventory";
 
-        String message = plugin.getConfigManager().getMessage(messageKey,
+        String message = plugin.getConfigManager().getMessage(messageKey, timestamp,
                 PLAYER_PLACEHOLDER, playerName,
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
-                "%material%", materialName,
-                TIME_PLACEHOLDER, time);
-        sendToDiscord(message);
+                "%material%", materialName);
+        sendToDiscord(route, message);
     }
 
-    private String createCreativeInventoryEmbed(String playerName, ItemStack item,
+    private String createCreativeInventoryEmbed(long timestamp, String playerName, ItemStack item,
             MinecraftApiHelper.ItemData itemData) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        int amount = item.getAmount();
-        String embedColor = plugin.getConfigManager().getEmbedColor().replace("#", "");
-
-        int colorInt;
+        JsonWriter json = JsonWriter.acquire();
         try {
-            colorInt = Integer.parseInt(embedColor, 16);
-        } catch (NumberFormatException e) {
-            colorInt = 0x00d4aa;
-        }
-
-        StringBuilder embedJson = new StringBuilder();
-        embedJson.append("{\"embeds\":[{");
-        embedJson.append("\"title\":\"🎨 Creative Inventory Action\",");
-        embedJson.append("\"color\":").append(colorInt).append(",");
-        embedJson.append("\"thumbnail\":{\"url\":\"").append(safeJsonString(itemData.imageUrl())).append("\"},");
-        embedJson.append("\"fields\":[");
-        embedJson.append("{\"name\":\"Player\",\"value\":\"**").append(safeJsonString(playerName))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Item\",\"value\":\"**").append(safeJsonString(itemData.name()))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Amount\",\"value\":\"**").append(amount).append("**\",\"inline\":true}");
-
-        if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
-            embedJson.append(",{\"name\":\"Material ID\",\"value\":\"`").append(item.getType().name())
-                    .append("`\",\"inline\":true}");
-        }
-
-        String enchantments = getEnchantmentsString(item);
-        if (!enchantments.isEmpty()) {
-            embedJson.append(",{\"name\":\"Enchantments\",\"value\":\"").append(safeJsonString(enchantments))
-                    .append("\",\"inline\":false}");
-        }
+            beginEmbed(json, "🎨 Creative Inventory Action", getEmbedColor(), itemData);
+            boldField(json, "Player", playerName);
+            boldField(json, "Item", itemData.name());
+            boldField(json, "Amount", String.valueOf(item.getAmount()));
 
-        String customName = getCustomItemName(item);
-        if (!customName.isEmpty()) {
-            embedJson.append(",{\"name\":\"Custom Name\",\"value\":\"").append(safeJsonString(customName))
-                    .append("\",\"inline\":true}");
-        }
+            if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
+                materialField(json, item);
+            }
 
-        List<String> lore = getItemLore(item);
-        if (!lore.isEmpty()) {
-            String loreText = String.join("\\n", lore);
-            if (loreText.length() > MAX_LORE_LENGTH) {
-                loreText = loreText.substring(0, MAX_LORE_LENGTH - 3) + "...";
+            String enchantments = getEnchantmentsString(item);
+            if (!enchantments.isEmpty()) {
+                field(json, "Enchantments", enchantments, MAX_MESSAGE_LENGTH, false);
             }
-            embedJson.append(",{\"name\":\"Lore\",\"value\":\"").append(safeJsonString(loreText))
-                    .append("\",\"inline\":false}");
-        }
 
-        embedJson.append("],");
-        embedJson.append("\"footer\":{\"text\":\"").append(time);
-        embedJson.append(" • AdminWatchdog Plugin");
-        embedJson.append("\"}");
-        embedJson.append("}]}");
+            String customName = getCustomItemName(item);
+            if (!customName.isEmpty()) {
+                field(json, "Custom Name", customName, MAX_MESSAGE_LENGTH, true);
+            }
 
-        return embedJson.toString();
-    }
+            List<String> lore = getItemLore(item);
+            if (!lore.isEmpty()) {
+                field(json, "Lore", String.join("\n", lore), MAX_LORE_LENGTH, false);
+            }
 
-    private void sendJsonToDiscord(String jsonPayload) {
-        if (!plugin.getConfigManager().isDiscordEnabled()) {
-            return;
+            return endEmbed(json, timestamp);
+        } finally {
+            json.release();
         }
+    }
 
-        String webhookUrl = plugin.getConfigManager().getWebhookUrl();
-        if (webhookUrl == null || webhookUrl.isEmpty()) {
-            plugin.getLogger().warning(plugin.getConfigManager().getMessage("errors.webhook-not-set"));
-            return;
+    private int getEmbedColor() {
+        try {
+            return Integer.parseInt(plugin.getConfigManager().getEmbedColor().replace("#", ""), 16);
+        } catch (NumberFormatException e) {
+            return 0x00d4aa;
         }
+    }
 
-        try {
-            URL url = URI.create(webhookUrl).toURL();
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    static void beginEmbed(JsonWriter json, String title, int color, MinecraftApiHelper.ItemData itemData) {
+        json.beginObject()
+                .name("title").value(title)
+                .name("color").value(color)
+                .name("thumbnail").beginObject().name("url").value(itemData.imageUrl()).endObject()
+                .name("fields").beginArray();
+    }
 
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("User-Agent", "AdminWatchdog-Plugin/1.0");
+    private String endEmbed(JsonWriter json, long timestamp) {
+        json.endArray()
+                .name("footer").beginObject()
+                .name("text").beginString()
+                .append(plugin.getConfigManager().formatTime(timestamp)).append(" • AdminWatchdog Plugin")
+                .endString()
+                .endObject()
+                .endObject();
+        return json.toString();
+    }
 
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(jsonPayload.getBytes(StandardCharsets.UTF_8));
-                os.flush();
-            }
+    static void field(JsonWriter json, String name, String value, int maxLength, boolean inline) {
+        json.beginObject()
+                .name("name").value(name)
+                .name("value").value(value, maxLength)
+                .name("inline").value(inline)
+                .endObject();
+    }
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 204 && responseCode != 200) {
-                String errorMessage = plugin.getConfigManager().getMessage("errors.webhook-failed", "%code%",
-                        String.valueOf(responseCode));
-                plugin.getLogger().warning(errorMessage);
+    static void boldField(JsonWriter json, String name, String value) {
+        json.beginObject()
+                .name("name").value(name)
+                .name("value").beginString().append("**").append(value, MAX_MESSAGE_LENGTH).append("**").endString()
+                .name("inline").value(true)
+                .endObject();
+    }
 
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().warning("Failed JSON payload: " + jsonPayload);
-                }
-            }
+    private static void materialField(JsonWriter json, ItemStack item) {
+        json.beginObject()
+                .name("name").value("Material ID")
+                .name("value").beginString().append("`").append(item.getType().name()).append("`").endString()
+                .name("inline").value(true)
+                .endObject();
+    }
 
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error sending Discord webhook: " + e.getMessage());
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                e.printStackTrace();
-                plugin.getLogger().warning("Failed JSON payload: " + jsonPayload);
+    private void sendEmbedToDiscord(AuditRouter.Route route, String embedJson) {
+        for (String name : route.webhooks()) {
+            DiscordDispatcher target = getDispatcher(name);
+            if (target != null) {
+                target.enqueueEmbed(embedJson);
             }
         }
     }
@@ -344,203 +524,168 @@ public final class DiscordManager {
         }
     }
 
-    private String escapeJson(String text) {
-        if (text == null || text.isEmpty()) {
-            return "";
-        }
-
-        return text.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f")
-                .replaceAll("[\u0000-\u001F\u007F-\u009F]", "")
-                .replaceAll("§[0-9a-fk-or]", "");
-    }
-
-    private String safeJsonString(String text) {
-        if (text == null) {
-            return "";
-        }
-
-        String escaped = escapeJson(text);
-
-        if (escaped.length() > MAX_MESSAGE_LENGTH) {
-            escaped = escaped.substring(0, MAX_MESSAGE_LENGTH - 3) + "...";
-        }
-
-        return escaped;
-    }
-
-    
-
-    public void sendCreativeItemDrop(String playerName, ItemStack item) {
-        if (!plugin.getConfigManager().isDiscordEnabled()) {
+    public void sendCreativeItemDrop(AuditRouter.Route route, long timestamp, String playerName, ItemStack item) {
+        if (!route.discord()) {
             return;
         }
 
         if (plugin.getConfigManager().isDiscordEmbedsEnabled()) {
-            sendCreativeItemDropEmbed(playerName, item);
+            sendCreativeItemDropEmbed(route, timestamp, playerName, item);
         } else {
-            sendCreativeItemDropSimple(playerName, item);
+            sendCreativeItemDropSimple(route, timestamp, playerName, item);
         }
     }
 
-    private void sendCreativeItemDropSimple(String playerName, ItemStack item) {
-        String time = plugin.getConfigManager().getFormattedTime();
+    private void sendCreativeItemDropSimple(AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
         String itemName = getItemDisplayName(item);
         int amount = item.getAmount();
 
-        String message = plugin.getConfigManager().getMessage("discord.creative-item-drop",
+        String message = plugin.getConfigManager().getMessage("discord.creative-item-drop", timestamp,
                 PLAYER_PLACEHOLDER, playerName,
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
-                "%material%", item.getType().name(),
-                TIME_PLACEHOLDER, time);
-        sendToDiscord(message);
+                "%material%", item.getType().name());
+        sendToDiscord(route, message);
     }
 
-    private void sendCreativeItemDropEmbed(String playerName, ItemStack item) {
+    private void sendCreativeItemDropEmbed(AuditRouter.Route route, long timestamp, String playerName,
+            ItemStack item) {
         CompletableFuture<MinecraftApiHelper.ItemData> itemDataFuture = apiHelper.getItemData(item);
 
         itemDataFuture.thenAcceptAsync(itemData -> {
             try {
-                String embedJson = createCreativeItemDropEmbed(playerName, item, itemData);
-                sendJsonToDiscord(embedJson);
+                String embedJson = createCreativeItemDropEmbed(timestamp, playerName, item, itemData);
+                sendEmbedToDiscord(route, embedJson);
             } catch (Exception e) {
                 if (plugin.getConfigManager().isFallbackToSimple()) {
-                    sendCreativeItemDropSimple(playerName, item);
+                    sendCreativeItemDropSimple(route, timestamp, playerName, item);
                 }
             }
-        }).exceptionally(ex -> {
+        }, plugin.getHttpTransport().executor()).exceptionally(ex -> {
             if (plugin.getConfigManager().isFallbackToSimple()) {
-                sendCreativeItemDropSimple(playerName, item);
+                sendCreativeItemDropSimple(route, timestamp, playerName, item);
             }
             return null;
         });
     }
 
-    private String createCreativeItemDropEmbed(String playerName, ItemStack item,
+    private String createCreativeItemDropEmbed(long timestamp, String playerName, ItemStack item,
             MinecraftApiHelper.ItemData itemData) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        int amount = item.getAmount();
-        String embedColor = plugin.getConfigManager().getEmbedColor().replace("#", "");
-
-        int colorInt;
+        JsonWriter json = JsonWriter.acquire();
         try {
-            colorInt = Integer.parseInt(embedColor, 16);
-        } catch (NumberFormatException e) {
-            colorInt = 0x00d4aa;
-        }
+            beginEmbed(json, "📦 Creative Item Dropped", getEmbedColor(), itemData);
+            boldField(json, "Dropped By", playerName);
+            boldField(json, "Item", itemData.name());
+            boldField(json, "Amount", String.valueOf(item.getAmount()));
 
-        StringBuilder embedJson = new StringBuilder();
-        embedJson.append("{\"embeds\":[{");
-        embedJson.append("\"title\":\"📦 Creative Item Dropped\",");
-        embedJson.append("\"color\":").append(colorInt).append(",");
-        embedJson.append("\"thumbnail\":{\"url\":\"").append(safeJsonString(itemData.imageUrl())).append("\"},");
-        embedJson.append("\"fields\":[");
-        embedJson.append("{\"name\":\"Dropped By\",\"value\":\"**").append(safeJsonString(playerName))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Item\",\"value\":\"**").append(safeJsonString(itemData.name()))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Amount\",\"value\":\"**").append(amount).append("**\",\"inline\":true}");
+            if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
+                materialField(json, item);
+            }
 
-        if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
-            embedJson.append(",{\"name\":\"Material ID\",\"value\":\"`").append(item.getType().name())
-                    .append("`\",\"inline\":true}");
+            return endEmbed(json, timestamp);
+        } finally {
+            json.release();
         }
-
-        embedJson.append("],");
-        embedJson.append("\"footer\":{\"text\":\"").append(time);
-        embedJson.append(" • AdminWatchdog Plugin");
-        embedJson.append("\"}");
-        embedJson.append("}]}");
-
-        return embedJson.toString();
     }
 
-    public void sendCreativeItemPickup(String pickerName, String dropperName, ItemStack item) {
-        if (!plugin.getConfigManager().isDiscordEnabled()) {
+    /**
+     * @param holderName player the item was picked up from; the dropper on the first hand-off
+     * @param handOffs   1 for the first pickup after the creative drop, counting up as it changes hands
+     */
+    public void sendCreativeItemPickup(AuditRouter.Route route, long timestamp, String pickerName,
+            String dropperName, String holderName, int handOffs, ItemStack item) {
+        if (!route.discord()) {
             return;
         }
 
         if (plugin.getConfigManager().isDiscordEmbedsEnabled()) {
-            sendCreativeItemPickupEmbed(pickerName, dropperName, item);
+            sendCreativeItemPickupEmbed(route, timestamp, pickerName, dropperName, holderName, handOffs, item);
         } else {
-            sendCreativeItemPickupSimple(pickerName, dropperName, item);
+            sendCreativeItemPickupSimple(route, timestamp, pickerName, dropperName, holderName, handOffs, item);
         }
     }
 
-    private void sendCreativeItemPickupSimple(String pickerName, String dropperName, ItemStack item) {
-        String time = plugin.getConfigManager().getFormattedTime();
+    private void sendCreativeItemPickupSimple(AuditRouter.Route route, long timestamp, String pickerName,
+            String dropperName, String holderName, int handOffs, ItemStack item) {
         String itemName = getItemDisplayName(item);
         int amount = item.getAmount();
 
-        String message = plugin.getConfigManager().getMessage("discord.creative-item-pickup",
+        String message = plugin.getConfigManager().getMessage(
+                handOffs > 1 ? "discord.creative-item-handoff" : "discord.creative-item-pickup", timestamp,
                 "%picker%", pickerName,
                 "%dropper%", dropperName,
+                "%holder%", holderName,
+                "%hops%", String.valueOf(handOffs),
                 "%amount%", String.valueOf(amount),
                 "%item%", itemName,
-                "%material%", item.getType().name(),
-                TIME_PLACEHOLDER, time);
-        sendToDiscord(message);
+                "%material%", item.getType().name());
+        sendToDiscord(route, message);
     }
 
-    private void sendCreativeItemPickupEmbed(String pickerName, String dropperName, ItemStack item) {
+    private void sendCreativeItemPickupEmbed(AuditRouter.Route route, long timestamp, String pickerName,
+            String dropperName, String holderName, int handOffs, ItemStack item) {
         CompletableFuture<MinecraftApiHelper.ItemData> itemDataFuture = apiHelper.getItemData(item);
 
         itemDataFuture.thenAcceptAsync(itemData -> {
             try {
-                String embedJson = createCreativeItemPickupEmbed(pickerName, dropperName, item, itemData);
-                sendJsonToDiscord(embedJson);
+                String embedJson = createCreativeItemPickupEmbed(timestamp, pickerName, dropperName, holderName,
+                        handOffs, item, itemData);
+                sendEmbedToDiscord(route, embedJson);
             } catch (Exception e) {
                 if (plugin.getConfigManager().isFallbackToSimple()) {
-                    sendCreativeItemPickupSimple(pickerName, dropperName, item);
+                    sendCreativeItemPickupSimple(route, timestamp, pickerName, dropperName, holderName, handOffs, item);
                 }
             }
-        }).exceptionally(ex -> {
+        }, plugin.getHttpTransport().executor()).exceptionally(ex -> {
             if (plugin.getConfigManager().isFallbackToSimple()) {
-                sendCreativeItemPickupSimple(pickerName, dropperName, item);
+                sendCreativeItemPickupSimple(route, timestamp, pickerName, dropperName, holderName, handOffs, item);
             }
             return null;
         });
     }
 
-    private String createCreativeItemPickupEmbed(String pickerName, String dropperName, ItemStack item,
-            MinecraftApiHelper.ItemData itemData) {
-        String time = plugin.getConfigManager().getFormattedTime();
-        int amount = item.getAmount();
+    private String createCreativeItemPickupEmbed(long timestamp, String pickerName, String dropperName,
+            String holderName, int handOffs, ItemStack item, MinecraftApiHelper.ItemData itemData) {
+        JsonWriter json = JsonWriter.acquire();
+        try {
+            beginEmbed(json, "⚠️ Creative Item Picked Up", 0xFF9800, itemData);
+            boldField(json, "Picked Up By", pickerName);
+            boldField(json, "Originally Dropped By", dropperName);
+            if (handOffs > 1) {
+                boldField(json, "Received From", holderName);
+                boldField(json, "Hand-off", "#" + handOffs);
+            }
+            boldField(json, "Item", itemData.name());
+            boldField(json, "Amount", String.valueOf(item.getAmount()));
 
-        
-        int colorInt = 0xFF9800;
-
-        StringBuilder embedJson = new StringBuilder();
-        embedJson.append("{\"embeds\":[{");
-        embedJson.append("\"title\":\"⚠️ Creative Item Picked Up\",");
-        embedJson.append("\"color\":").append(colorInt).append(",");
-        embedJson.append("\"thumbnail\":{\"url\":\"").append(safeJsonString(itemData.imageUrl())).append("\"},");
-        embedJson.append("\"fields\":[");
-        embedJson.append("{\"name\":\"Picked Up By\",\"value\":\"**").append(safeJsonString(pickerName))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Originally Dropped By\",\"value\":\"**").append(safeJsonString(dropperName))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Item\",\"value\":\"**").append(safeJsonString(itemData.name()))
-                .append("**\",\"inline\":true},");
-        embedJson.append("{\"name\":\"Amount\",\"value\":\"**").append(amount).append("**\",\"inline\":true}");
-
-        if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
-            embedJson.append(",{\"name\":\"Material ID\",\"value\":\"`").append(item.getType().name())
-                    .append("`\",\"inline\":true}");
-        }
-
-        embedJson.append("],");
-        embedJson.append("\"footer\":{\"text\":\"").append(time);
-        embedJson.append(" • AdminWatchdog Plugin");
-        embedJson.append("\"}");
-        embedJson.append("}]}");
-
-        return embedJson.toString();
+            if (plugin.getConfigManager().isIncludeTechnicalDetails()) {
+                materialField(json, item);
+            }
+
+            return endEmbed(json, timestamp);
+        } finally {
+            json.release();
+        }
+    }
+
+    /**
+     * Marked creative items moved into a container by a hopper or dropper. Always sent as plain text.
+     */
+    public void sendCreativeItemTransfer(AuditRouter.Route route, long timestamp, String dropperName,
+            ItemStack item, String source, String destination, AuditLocation location) {
+        if (!route.discord()) {
+            return;
+        }
+
+        String message = plugin.getConfigManager().getMessage("discord.creative-item-transfer", timestamp,
+                "%dropper%", dropperName,
+                "%amount%", String.valueOf(item.getAmount()),
+                "%item%", getItemDisplayName(item),
+                "%material%", item.getType().name(),
+                "%source%", source,
+                "%destination%", destination,
+                "%location%", String.valueOf(location));
+        sendToDiscord(route, message);
     }
 }
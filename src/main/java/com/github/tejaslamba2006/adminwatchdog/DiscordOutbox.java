@@ -0,0 +1,312 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead outbox for a Discord webhook, kept in a fixed-size memory-mapped file so pending
+ * messages survive outages and restarts without being held on the heap.
+ * <p>
+ * Layout: a 32-byte header (magic, version, acknowledged offset, write offset) followed by
+ * records of {@code [int length][int crc32][byte kind][payload]} appended in order. The dispatcher
+ * reads ahead of the acknowledged offset and moves it forward once a batch is delivered. When the
+ * file is full, acknowledged space at the front is reclaimed by moving the pending records down;
+ * if that is not enough the new message is rejected. On startup everything after the
+ * acknowledged offset is delivered again, so delivery is at least once.
+ * <p>
+ * Writes reach the disk when the operating system flushes the mapped pages, which survives a
+ * crash of the server but not of the machine. {@link #force(long, long)} is called on a timer
+ * to bound what a power loss can take.
+ */
+public final class DiscordOutbox implements DiscordDispatcher.Backlog {
+
+    private static final int MAGIC = 0x41574F42; // "AWOB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ACK_OFFSET_POSITION = 8;
+    private static final int WRITE_OFFSET_POSITION = 16;
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final byte KIND_TEXT = 0;
+    private static final byte KIND_EMBED = 1;
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+
+    private int ackOffset;
+    private int readOffset;
+    private int writeOffset;
+    private int pending;
+    // Message positions are logical so they stay valid when records are moved down
+    private long shifted;
+    private boolean closed;
+    private volatile boolean dirty;
+    // Only touched by the thread that calls force
+    private long lastForced;
+
+    private DiscordOutbox(File file, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    /**
+     * Opens or creates the outbox, recovering the pending records of a previous run.
+     */
+    public static DiscordOutbox open(File file, int maxSizeBytes, Logger logger) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int size = (int) Math.max(maxSizeBytes, Math.min(channel.size(), Integer.MAX_VALUE));
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            DiscordOutbox outbox = new DiscordOutbox(file, channel, buffer);
+            int recovered = outbox.recover();
+            if (recovered > 0) {
+                logger.info("Recovered " + recovered + " undelivered Discord message(s) from " + file.getName());
+            }
+            return outbox;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private int recover() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            reset();
+            return 0;
+        }
+
+        long storedAck = buffer.getLong(ACK_OFFSET_POSITION);
+        long storedWrite = buffer.getLong(WRITE_OFFSET_POSITION);
+        if (storedAck < HEADER_SIZE || storedWrite < storedAck || storedWrite > capacity) {
+            reset();
+            return 0;
+        }
+
+        // Keep every intact record; a torn write at the end is discarded
+        int position = (int) storedAck;
+        int count = 0;
+        while (position < storedWrite) {
+            int next = validRecordEnd(position, (int) storedWrite);
+            if (next < 0) {
+                break;
+            }
+            position = next;
+            count++;
+        }
+
+        ackOffset = (int) storedAck;
+        readOffset = ackOffset;
+        writeOffset = position;
+        pending = count;
+        writeHeader();
+        return count;
+    }
+
+    private void reset() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        ackOffset = HEADER_SIZE;
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE;
+        pending = 0;
+        writeHeader();
+    }
+
+    private int validRecordEnd(int position, int limit) {
+        if (position + RECORD_HEADER_SIZE > limit) {
+            return -1;
+        }
+        // A corrupt length must not overflow past the limit check
+        int length = buffer.getInt(position);
+        if (length < 0 || length > limit - position - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int end = position + RECORD_HEADER_SIZE + length;
+        return checksum(position + 8, length + 1) == buffer.getInt(position + 4) ? end : -1;
+    }
+
+    private int checksum(int position, int length) {
+        crc.reset();
+        crc.update(buffer.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    private void writeHeader() {
+        buffer.putLong(ACK_OFFSET_POSITION, ackOffset);
+        buffer.putLong(WRITE_OFFSET_POSITION, writeOffset);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized boolean offer(String body, boolean embed) {
+        if (closed) {
+            return false;
+        }
+
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (writeOffset + recordSize > capacity) {
+            compact();
+            if (writeOffset + recordSize > capacity) {
+                return false;
+            }
+        }
+
+        int position = writeOffset;
+        buffer.putInt(position, payload.length);
+        buffer.put(position + 8, embed ? KIND_EMBED : KIND_TEXT);
+        buffer.put(position + RECORD_HEADER_SIZE, payload);
+        buffer.putInt(position + 4, checksum(position + 8, payload.length + 1));
+
+        // The record is complete before the header points past it
+        writeOffset = position + recordSize;
+        buffer.putLong(WRITE_OFFSET_POSITION, writeOffset);
+        dirty = true;
+        pending++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Moves the unacknowledged records to the front of the file to reclaim delivered space.
+     */
+    private void compact() {
+        int shift = ackOffset - HEADER_SIZE;
+        if (shift == 0) {
+            return;
+        }
+
+        int length = writeOffset - ackOffset;
+        buffer.put(HEADER_SIZE, buffer, ackOffset, length);
+        ackOffset = HEADER_SIZE;
+        readOffset -= shift;
+        writeOffset -= shift;
+        shifted += shift;
+        writeHeader();
+    }
+
+    @Override
+    public synchronized DiscordDispatcher.Message poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!closed && readOffset >= writeOffset) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return null;
+            }
+            wait(remaining);
+        }
+        return poll();
+    }
+
+    @Override
+    public synchronized DiscordDispatcher.Message poll() {
+        if (closed || readOffset >= writeOffset) {
+            return null;
+        }
+
+        int position = readOffset;
+        int length = buffer.getInt(position);
+        boolean embed = buffer.get(position + 8) == KIND_EMBED;
+        byte[] payload = new byte[length];
+        buffer.get(position + RECORD_HEADER_SIZE, payload);
+        readOffset = position + RECORD_HEADER_SIZE + length;
+        return new DiscordDispatcher.Message(new String(payload, StandardCharsets.UTF_8), embed,
+                shifted + readOffset);
+    }
+
+    @Override
+    public synchronized void acknowledge(DiscordDispatcher.Message last, int count) {
+        if (closed) {
+            return;
+        }
+
+        int end = (int) (last.end() - shifted);
+        if (end <= ackOffset || end > writeOffset) {
+            return;
+        }
+        ackOffset = end;
+        pending = Math.max(0, pending - count);
+        if (ackOffset == writeOffset) {
+            // Everything delivered, start again at the front
+            ackOffset = HEADER_SIZE;
+            readOffset = HEADER_SIZE;
+            writeOffset = HEADER_SIZE;
+            shifted += end - HEADER_SIZE;
+        }
+        writeHeader();
+    }
+
+    @Override
+    public synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * Bytes used by pending records.
+     */
+    public synchronized int getBacklogBytes() {
+        return writeOffset - ackOffset;
+    }
+
+    /**
+     * Writes the file's changes to disk if there are any and the last force is at least
+     * {@code intervalMillis} old. Runs without the outbox lock, so the dispatcher and callers
+     * adding messages are not held up by the disk.
+     */
+    public void force(long now, long intervalMillis) {
+        if (!dirty || now - lastForced < intervalMillis) {
+            return;
+        }
+        dirty = false;
+        buffer.force();
+        lastForced = now;
+    }
+
+    public int getCapacityBytes() {
+        return capacity;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        notifyAll();
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Mapped contents are already forced
+        }
+    }
+}
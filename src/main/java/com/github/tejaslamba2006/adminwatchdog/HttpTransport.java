@@ -0,0 +1,48 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The plugin's only HTTP client. Connections are pooled and reused (HTTP/2 where the server
+ * supports it), every connection attempt has a timeout, and the client plus all of the plugin's
+ * async HTTP work run on virtual threads instead of the common ForkJoin pool shared with other plugins.
+ */
+public final class HttpTransport {
+
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("AdminWatchdog-Http-", 0).factory());
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+
+    public HttpClient client() {
+        return client;
+    }
+
+    /**
+     * Virtual-thread executor for async work that ends in an HTTP call.
+     */
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public void shutdown() {
+        client.shutdown();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import io.papermc.paper.persistence.PersistentDataContainerView;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import java.util.UUID;
+
+/**
+ * Reads and writes the provenance marker that items dropped in creative mode carry in their
+ * PersistentDataContainer. The marker travels with the item through inventories, containers
+ * and further drops, so hand-offs can be attributed to the creative player the item came from
+ * without the plugin keeping any per-item state.
+ */
+public final class ItemProvenance {
+
+    /**
+     * @param handOffs how many times the item has been picked up by someone other than its last holder
+     */
+    public record Origin(UUID playerUuid, String playerName, long droppedAt, int handOffs) {
+
+        public Origin handedOff() {
+            return new Origin(playerUuid, playerName, droppedAt, handOffs + 1);
+        }
+    }
+
+    private final NamespacedKey originKey;
+    private final NamespacedKey originNameKey;
+    private final NamespacedKey droppedAtKey;
+    private final NamespacedKey handOffsKey;
+
+    public ItemProvenance(Plugin plugin) {
+        this.originKey = new NamespacedKey(plugin, "origin");
+        this.originNameKey = new NamespacedKey(plugin, "origin-name");
+        this.droppedAtKey = new NamespacedKey(plugin, "origin-time");
+        this.handOffsKey = new NamespacedKey(plugin, "hand-offs");
+    }
+
+    /**
+     * @return the marker, or null if the item does not carry one
+     */
+    public Origin read(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) {
+            return null;
+        }
+
+        // The read-only view avoids copying the item meta for every untagged item with meta
+        PersistentDataContainerView data = item.getPersistentDataContainer();
+        String uuid = data.get(originKey, PersistentDataType.STRING);
+        if (uuid == null) {
+            return null;
+        }
+
+        try {
+            Long droppedAt = data.get(droppedAtKey, PersistentDataType.LONG);
+            Integer handOffs = data.get(handOffsKey, PersistentDataType.INTEGER);
+            return new Origin(UUID.fromString(uuid), data.get(originNameKey, PersistentDataType.STRING),
+                    droppedAt != null ? droppedAt : 0L, handOffs != null ? handOffs : 0);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the marker into {@code item}, which must be the stack the game will keep using
+     * (for example the one returned by {@code Item#getItemStack()} and set back afterwards).
+     */
+    public void write(ItemStack item, Origin origin) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return;
+        }
+
+        PersistentDataContainer data = meta.getPersistentDataContainer();
+        data.set(originKey, PersistentDataType.STRING, origin.playerUuid().toString());
+        data.set(originNameKey, PersistentDataType.STRING, origin.playerName());
+        data.set(droppedAtKey, PersistentDataType.LONG, origin.droppedAt());
+        data.set(handOffsKey, PersistentDataType.INTEGER, origin.handOffs());
+        item.setItemMeta(meta);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the parts of an ItemStack that end up in logs and embeds.
+ */
+public record ItemSnapshot(String material, int amount, String displayName, String customName,
+        String enchantments, List<String> lore) {
+
+    public ItemSnapshot {
+        lore = lore == null ? List.of() : List.copyOf(lore);
+    }
+
+    public static ItemSnapshot of(ItemStack item) {
+        String material = item.getType().name();
+        String fallbackName = material.toLowerCase().replace('_', ' ');
+
+        if (!item.hasItemMeta()) {
+            return new ItemSnapshot(material, item.getAmount(), fallbackName, "", "", List.of());
+        }
+
+        ItemMeta meta = item.getItemMeta();
+        String customName = "";
+        if (meta.hasDisplayName()) {
+            try {
+                customName = PlainTextComponentSerializer.plainText().serialize(meta.displayName()).trim();
+            } catch (Exception ignored) {
+                customName = "";
+            }
+        }
+
+        return new ItemSnapshot(material, item.getAmount(),
+                customName.isEmpty() ? fallbackName : customName,
+                customName,
+                formatEnchantments(meta.getEnchants()),
+                readLore(meta));
+    }
+
+    private static String formatEnchantments(Map<Enchantment, Integer> enchants) {
+        if (enchants.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<Enchantment, Integer> entry : enchants.entrySet()) {
+            if (!result.isEmpty()) {
+                result.append(", ");
+            }
+            try {
+                String enchantName = entry.getKey().getKey().getKey().replace('_', ' ');
+                result.append(Character.toUpperCase(enchantName.charAt(0))).append(enchantName, 1,
+                        enchantName.length());
+                result.append(' ').append(entry.getValue());
+            } catch (Exception e) {
+                result.append("Unknown Enchantment");
+            }
+        }
+        return result.toString();
+    }
+
+    private static List<String> readLore(ItemMeta meta) {
+        if (!meta.hasLore() || meta.lore() == null) {
+            return List.of();
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Component component : meta.lore()) {
+            String line;
+            try {
+                line = PlainTextComponentSerializer.plainText().serialize(component).trim();
+            } catch (Exception e) {
+                line = "[Invalid Text]";
+            }
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
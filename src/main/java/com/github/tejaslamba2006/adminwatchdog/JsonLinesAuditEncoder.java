@@ -0,0 +1,112 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Writes one compact JSON object per line. Fields without a value are left out.
+ */
+public final class JsonLinesAuditEncoder implements AuditEventEncoder {
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    @Override
+    public String fileExtension() {
+        return ".jsonl";
+    }
+
+    @Override
+    public void encode(AuditEvent event, OutputStream out) throws IOException {
+        line.setLength(0);
+        line.append("{\"ts\":").append(event.timestamp());
+        appendString("kind", event.kind().configName());
+        appendString("actor", event.actorType().configName());
+        appendUuid("uuid", event.playerUuid());
+        appendString("player", event.playerName());
+        appendString("command", event.command());
+
+        ItemSnapshot item = event.item();
+        if (item != null) {
+            appendString("material", item.material());
+            line.append(",\"amount\":").append(item.amount());
+            appendString("item", item.displayName());
+            appendNonEmpty("customName", item.customName());
+            appendNonEmpty("enchantments", item.enchantments());
+            if (!item.lore().isEmpty()) {
+                line.append(",\"lore\":[");
+                for (int i = 0; i < item.lore().size(); i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    appendQuoted(item.lore().get(i));
+                }
+                line.append(']');
+            }
+        }
+
+        AuditLocation location = event.location();
+        if (location != null) {
+            line.append(",\"location\":{\"world\":");
+            appendQuoted(location.world());
+            line.append(",\"x\":").append(location.x())
+                    .append(",\"y\":").append(location.y())
+                    .append(",\"z\":").append(location.z())
+                    .append('}');
+        }
+
+        if (event instanceof AuditEvent.GamemodeChange change) {
+            appendString("oldMode", change.oldMode());
+            appendString("newMode", change.newMode());
+        } else if (event instanceof AuditEvent.CreativeItemPickup pickup) {
+            appendUuid("dropperUuid", pickup.dropperUuid());
+            appendString("dropper", pickup.dropperName());
+        }
+
+        line.append('}').append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void appendUuid(String name, UUID value) {
+        if (value != null) {
+            appendString(name, value.toString());
+        }
+    }
+
+    private void appendNonEmpty(String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            appendString(name, value);
+        }
+    }
+
+    private void appendString(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":");
+        appendQuoted(value);
+    }
+
+    private void appendQuoted(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streaming JSON writer that encodes UTF-8 straight into a reusable heap {@link ByteBuffer}.
+ * Strings are escaped in a single pass that also drops control characters and Minecraft §
+ * colour codes, so Discord payloads are built without intermediate strings or regex scans.
+ * The finished bytes can be handed to an HTTP body as {@link #array()} / {@link #length()}.
+ * <p>
+ * Not thread-safe. Short-lived writers come from a small pool via {@link #acquire()} and
+ * go back with {@link #release()}.
+ */
+public final class JsonWriter {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    private static final int MAX_DEPTH = 32;
+    private static final BlockingQueue<JsonWriter> POOL = new ArrayBlockingQueue<>(16);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    public static JsonWriter acquire() {
+        JsonWriter writer = POOL.poll();
+        return writer != null ? writer : new JsonWriter();
+    }
+
+    /**
+     * Returns this writer to the pool. It must not be used afterwards.
+     */
+    public void release() {
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            reset();
+            POOL.offer(this);
+        }
+    }
+
+    public JsonWriter reset() {
+        buffer.clear();
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    public JsonWriter beginObject() {
+        checkNesting();
+        beforeValue();
+        put((byte) '{');
+        return push();
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        put((byte) '}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        checkNesting();
+        beforeValue();
+        put((byte) '[');
+        return push();
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        put((byte) ']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        beforeValue();
+        put((byte) '"');
+        escape(name, Integer.MAX_VALUE);
+        put((byte) '"');
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes an escaped string value; null is written as an empty string.
+     */
+    public JsonWriter value(String text) {
+        return value(text, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes an escaped string value, cut to {@code maxLength} characters with "..." at the end.
+     */
+    public JsonWriter value(String text, int maxLength) {
+        beginString();
+        append(text, maxLength);
+        return endString();
+    }
+
+    public JsonWriter value(long number) {
+        beforeValue();
+        ascii(Long.toString(number));
+        return this;
+    }
+
+    public JsonWriter value(boolean flag) {
+        beforeValue();
+        ascii(flag ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes an already encoded JSON value as-is.
+     */
+    public JsonWriter rawValue(String json) {
+        beforeValue();
+        utf8(json);
+        return this;
+    }
+
+    /**
+     * Opens a string value that is then built from several {@link #append} calls.
+     */
+    public JsonWriter beginString() {
+        beforeValue();
+        put((byte) '"');
+        return this;
+    }
+
+    public JsonWriter append(String text) {
+        return append(text, Integer.MAX_VALUE);
+    }
+
+    public JsonWriter append(String text, int maxLength) {
+        if (text != null) {
+            escape(text, maxLength);
+        }
+        return this;
+    }
+
+    public JsonWriter endString() {
+        put((byte) '"');
+        return this;
+    }
+
+    public byte[] array() {
+        return buffer.array();
+    }
+
+    public int length() {
+        return buffer.position();
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    // Checked before anything is written, so a rejected value leaves no stray bracket
+    private void checkNesting() {
+        if (depth >= MAX_DEPTH - 1) {
+            throw new IllegalStateException("JSON nested deeper than " + (MAX_DEPTH - 1) + " levels");
+        }
+    }
+
+    private JsonWriter push() {
+        hasElements[++depth] = false;
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth]) {
+                put((byte) ',');
+            }
+            hasElements[depth] = true;
+        }
+    }
+
+    /**
+     * Escapes {@code text} into the buffer, skipping control characters and § colour codes.
+     * Past {@code maxLength} output characters the text is cut and "..." appended.
+     */
+    private void escape(String text, int maxLength) {
+        int limit = text.length() > maxLength ? maxLength - 3 : Integer.MAX_VALUE;
+        int written = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '§' && i + 1 < text.length() && isColourCode(text.charAt(i + 1))) {
+                i++;
+                continue;
+            }
+            if (written >= limit) {
+                ascii("...");
+                return;
+            }
+
+            switch (c) {
+                case '"' -> escaped('"');
+                case '\\' -> escaped('\\');
+                case '\n' -> escaped('n');
+                case '\r' -> escaped('r');
+                case '\t' -> escaped('t');
+                case '\b' -> escaped('b');
+                case '\f' -> escaped('f');
+                default -> {
+                    if (c < 0x20 || (c >= 0x7F && c <= 0x9F)) {
+                        continue;
+                    }
+                    if (c < 0x80) {
+                        put((byte) c);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                            && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        codePoint(Character.toCodePoint(c, text.charAt(++i)));
+                    } else if (Character.isSurrogate(c)) {
+                        unicodeEscape(c);
+                    } else {
+                        codePoint(c);
+                    }
+                }
+            }
+            written++;
+        }
+    }
+
+    private static boolean isColourCode(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'k' && c <= 'o') || c == 'r';
+    }
+
+    private void escaped(char c) {
+        ensureCapacity(2);
+        buffer.put((byte) '\\').put((byte) c);
+    }
+
+    private void unicodeEscape(char c) {
+        ensureCapacity(6);
+        buffer.put((byte) '\\').put((byte) 'u')
+                .put(HEX[(c >> 12) & 0xF]).put(HEX[(c >> 8) & 0xF])
+                .put(HEX[(c >> 4) & 0xF]).put(HEX[c & 0xF]);
+    }
+
+    private void codePoint(int codePoint) {
+        ensureCapacity(4);
+        if (codePoint < 0x80) {
+            buffer.put((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            buffer.put((byte) (0xC0 | (codePoint >> 6)))
+                    .put((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (codePoint < 0x10000) {
+            buffer.put((byte) (0xE0 | (codePoint >> 12)))
+                    .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                    .put((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+            buffer.put((byte) (0xF0 | (codePoint >> 18)))
+                    .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                    .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                    .put((byte) (0x80 | (codePoint & 0x3F)));
+        }
+    }
+
+    private void ascii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void utf8(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                codePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                codePoint(c);
+            }
+        }
+    }
+
+    private void put(byte b) {
+        ensureCapacity(1);
+        buffer.put(b);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram. Values in nanoseconds are counted
+ * in log-linear buckets: every power of two is split into 32 sub-buckets, so any reported
+ * percentile is within about 3% of the true value. Recording is one array increment plus a
+ * few adders and never allocates, so it is cheap enough for the server thread.
+ */
+public final class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Values above ~36 minutes are clamped into the last bucket
+    private static final long MAX_TRACKABLE_NANOS = (1L << 41) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0L, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        totalNanos.add(value);
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    private static int indexOf(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (bucket << SUB_BUCKET_BITS) + (int) (value >>> bucket);
+    }
+
+    /**
+     * Highest value that falls into the same bucket as values at {@code index}.
+     */
+    private static long highestEquivalentValue(int index) {
+        int bucket = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - ((long) bucket << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalNanos.sum() / samples;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the recorded value at that percentile, or 0 when nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
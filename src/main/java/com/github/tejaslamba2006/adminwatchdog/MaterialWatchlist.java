@@ -0,0 +1,138 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.Material;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * How seriously creative grabs and drops of each material are taken, from
+ * {@code monitoring.creative-inventory.tiers}. Compiled on load and reload into an array indexed
+ * by {@link Material#ordinal()}, so event handlers classify an item with one array read and no
+ * hashing or string work.
+ */
+public final class MaterialWatchlist {
+
+    public enum Tier {
+        /**
+         * Not reported anywhere.
+         */
+        IGNORE("ignore"),
+        /**
+         * Written to the log file and the event log, never sent to Discord.
+         */
+        LOG_ONLY("log-only"),
+        /**
+         * Reported as usual; routing rules apply.
+         */
+        ALERT("alert"),
+        /**
+         * Reported on its own right away, and raises an anomaly alert.
+         */
+        CRITICAL("critical");
+
+        private final String configName;
+
+        Tier(String configName) {
+            this.configName = configName;
+        }
+
+        public String configName() {
+            return configName;
+        }
+
+        public static Tier fromConfigName(String name) {
+            for (Tier tier : values()) {
+                if (tier.configName.equalsIgnoreCase(name)) {
+                    return tier;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final Tier[] tiers;
+
+    private MaterialWatchlist(Tier[] tiers) {
+        this.tiers = tiers;
+    }
+
+    /**
+     * @param patterns material names by tier; a name may start or end with {@code *}, and a
+     *                 {@code minecraft:} namespace is ignored. A material matching several tiers
+     *                 gets the most severe one, so a broad pattern cannot hide a critical material
+     * @param fallback the tier of materials no pattern matches
+     */
+    public static MaterialWatchlist compile(Map<Tier, List<String>> patterns, Tier fallback, Logger logger) {
+        Tier[] tiers = new Tier[MATERIALS.length];
+
+        for (Map.Entry<Tier, List<String>> entry : patterns.entrySet()) {
+            Tier tier = entry.getKey();
+            for (String pattern : entry.getValue()) {
+                String name = pattern.trim().toUpperCase();
+                if (name.startsWith("MINECRAFT:")) {
+                    name = name.substring("MINECRAFT:".length());
+                }
+
+                boolean matched = false;
+                for (Material material : MATERIALS) {
+                    if (matches(name, material.name())) {
+                        Tier current = tiers[material.ordinal()];
+                        if (current == null || tier.compareTo(current) > 0) {
+                            tiers[material.ordinal()] = tier;
+                        }
+                        matched = true;
+                    }
+                }
+                if (!matched) {
+                    logger.warning("Unknown material '" + pattern + "' in monitoring.creative-inventory.tiers."
+                            + tier.configName());
+                }
+            }
+        }
+
+        for (int i = 0; i < tiers.length; i++) {
+            if (tiers[i] == null) {
+                tiers[i] = fallback;
+            }
+        }
+        return new MaterialWatchlist(tiers);
+    }
+
+    private static boolean matches(String pattern, String name) {
+        if (pattern.length() > 1 && pattern.startsWith("*")) {
+            return name.endsWith(pattern.substring(1));
+        }
+        if (pattern.length() > 1 && pattern.endsWith("*")) {
+            return name.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return pattern.equals(name);
+    }
+
+    public Tier tier(Material material) {
+        return tiers[material.ordinal()];
+    }
+
+    public boolean isIgnored(Material material) {
+        return tiers[material.ordinal()] == Tier.IGNORE;
+    }
+
+    /**
+     * Names of the materials in a tier, for code that only has the name, such as the anomaly
+     * detector reading events forwarded by other servers.
+     */
+    public Set<String> materialNames(Tier tier) {
+        Set<String> names = new HashSet<>();
+        for (Material material : MATERIALS) {
+            if (tiers[material.ordinal()] == tier) {
+                names.add(material.name());
+            }
+        }
+        return Set.copyOf(names);
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message with %placeholder% slots, compiled once into alternating literal segments and
+ * placeholder names. Rendering walks the plan once, asking a {@link Resolver} for each slot, so
+ * values are only computed for placeholders the message actually uses and a value is never
+ * scanned for further placeholders.
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_REUSED_CAPACITY = 4096;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String source;
+    // literals.length == placeholders.length + 1
+    private final String[] literals;
+    private final String[] placeholders;
+
+    /**
+     * Supplies the value of a placeholder such as "%time%", or null to keep it as written.
+     */
+    @FunctionalInterface
+    public interface Resolver {
+        String resolve(String placeholder);
+    }
+
+    private MessageTemplate(String source, String[] literals, String[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    public static MessageTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int position = 0;
+        while ((position = source.indexOf('%', position)) >= 0) {
+            int end = placeholderEnd(source, position);
+            if (end < 0) {
+                position++;
+                continue;
+            }
+            literals.add(source.substring(literalStart, position));
+            placeholders.add(source.substring(position, end).intern());
+            literalStart = end;
+            position = end;
+        }
+        literals.add(source.substring(literalStart));
+
+        return new MessageTemplate(source, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * @return the index just past the closing %, or -1 if no placeholder starts at {@code start}
+     */
+    private static int placeholderEnd(String source, int start) {
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '%') {
+                return i > start + 1 ? i + 1 : -1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public String render(Resolver resolver) {
+        if (placeholders.length == 0) {
+            return source;
+        }
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        builder.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = resolver.resolve(placeholders[i]);
+            builder.append(value != null ? value : placeholders[i]);
+            builder.append(literals[i + 1]);
+        }
+
+        String result = builder.toString();
+        if (builder.capacity() > MAX_REUSED_CAPACITY) {
+            BUILDER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * The value paired with a placeholder in placeholder/value pairs, or null.
+     */
+    static String valueOf(String placeholder, String[] pairs) {
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            if (placeholder.equals(pairs[i])) {
+                return pairs[i + 1];
+            }
+        }
+        return null;
+    }
+}
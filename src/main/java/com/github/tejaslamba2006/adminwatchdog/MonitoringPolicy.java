@@ -0,0 +1,68 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.permissions.Permissible;
+
+/**
+ * Immutable snapshot of the monitoring settings, built by {@link ConfigManager} on load and reload.
+ * Event handlers read it through a single volatile reference instead of walking the
+ * configuration on every event. The arrays are shared and must not be modified.
+ */
+public record MonitoringPolicy(
+        boolean opsMonitoring,
+        boolean permissionMonitoring,
+        String[] monitoredPermissions,
+        long profileCacheTtlMillis,
+        boolean consoleMonitoring,
+        boolean gamemodeMonitoring,
+        boolean allCommands,
+        boolean creativeInventory,
+        boolean creativeOpsOnly,
+        boolean creativePermissionsOnly,
+        boolean creativeDetailedLogging,
+        MaterialWatchlist creativeWatchlist,
+        long creativeBurstWindowMillis,
+        long creativeBurstMaxMillis,
+        int creativeBurstMaxGrabs,
+        boolean creativeItemDrops,
+        boolean creativeDropTrackPickup,
+        long creativeDropTrackingMillis,
+        int creativeDropTrackingCapacity,
+        boolean creativeDropTrackContainers,
+        boolean blacklistEnabled,
+        CommandPrefixMatcher playerBlacklist,
+        CommandPrefixMatcher consoleBlacklist,
+        boolean customResponses,
+        CommandPatternTrie playerResponses,
+        CommandPatternTrie consoleResponses,
+        boolean discordEnabled,
+        boolean fileLogging,
+        AuditRouter router,
+        AuditRouter localRouter,
+        AnomalyDetector.Settings anomalyDetection,
+        boolean debug,
+        String[] prefixes) {
+
+    /**
+     * @param command full command including the leading slash
+     */
+    public boolean isCommandBlacklisted(String command, boolean isConsole) {
+        if (!blacklistEnabled) {
+            return false;
+        }
+
+        return (isConsole ? consoleBlacklist : playerBlacklist).matches(command);
+    }
+
+    public boolean hasMonitoredPermission(Permissible permissible) {
+        for (String permission : monitoredPermissions) {
+            if (permissible.hasPermission(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String prefix(ActorType actorType) {
+        return prefixes[actorType.ordinal()];
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+/**
+ * Latency recorders for the plugin's hot paths, shown by {@code /aw stats} and reported to bStats.
+ * Event handler probes run on the server thread and together make up the plugin's main-thread cost;
+ * the other probes time work on the pipeline, writer and Discord threads.
+ */
+public final class PerformanceStats {
+
+    public enum Probe {
+        GAMEMODE_CHANGE("Gamemode change handler", true),
+        CONSOLE_COMMAND("Console command handler", true),
+        PLAYER_COMMAND("Player command handler", true),
+        CREATIVE_INVENTORY("Creative inventory handler", true),
+        ITEM_DROP("Item drop handler", true),
+        ITEM_MARK("Item marker handler", true),
+        ITEM_PICKUP("Item pickup handler", true),
+        ITEM_TRANSFER("Container transfer handler", true),
+        PLAYER_SESSION("Join/quit handler", true),
+        CUSTOM_RESPONSE_MATCH("Custom response matching", false),
+        TEMPLATE_RENDER("Message rendering", false),
+        FILE_WRITE("Log file write", false),
+        DISCORD_REQUEST("Discord request", false);
+
+        private final String displayName;
+        private final boolean mainThread;
+
+        Probe(String displayName, boolean mainThread) {
+            this.displayName = displayName;
+            this.mainThread = mainThread;
+        }
+
+        public String displayName() {
+            return displayName;
+        }
+
+        public boolean isMainThread() {
+            return mainThread;
+        }
+    }
+
+    private final LatencyRecorder[] recorders = new LatencyRecorder[Probe.values().length];
+    private final long startedAt = System.currentTimeMillis();
+    private final int startTick;
+
+    public PerformanceStats(int startTick) {
+        this.startTick = startTick;
+        for (Probe probe : Probe.values()) {
+            recorders[probe.ordinal()] = new LatencyRecorder(probe.displayName());
+        }
+    }
+
+    public LatencyRecorder get(Probe probe) {
+        return recorders[probe.ordinal()];
+    }
+
+    /**
+     * Records the time since {@code startNanos} for a probe; pair with {@link System#nanoTime()}.
+     */
+    public void recordSince(Probe probe, long startNanos) {
+        recorders[probe.ordinal()].recordSince(startNanos);
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public int getStartTick() {
+        return startTick;
+    }
+
+    /**
+     * Total time spent in event handlers on the server thread.
+     */
+    public long getMainThreadNanos() {
+        long total = 0;
+        for (Probe probe : Probe.values()) {
+            if (probe.isMainThread()) {
+                total += get(probe).getTotalNanos();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Number of events seen by the handlers.
+     */
+    public long getHandledEvents() {
+        long total = 0;
+        for (Probe probe : Probe.values()) {
+            if (probe.isMainThread()) {
+                total += get(probe).getCount();
+            }
+        }
+        return total;
+    }
+}
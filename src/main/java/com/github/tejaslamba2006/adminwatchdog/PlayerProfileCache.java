@@ -0,0 +1,73 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches each online player's monitoring classification so event handlers do one map lookup
+ * instead of repeated permission checks.
+ * <p>
+ * A profile is recomputed when the player joins or quits, when the config is reloaded
+ * (the profile remembers the policy it was computed for), when the player's op status no
+ * longer matches and, if {@code monitoring.permissions.cache-ttl} is set, when it expires.
+ * The TTL catches permission changes made through a permissions plugin.
+ */
+public final class PlayerProfileCache {
+
+    private final Map<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * @param monitoredPermission holds at least one of monitoring.permissions.list
+     * @param routePermissions    which permissions used by routing rules are held, see {@link AuditRouter}
+     */
+    public record PlayerProfile(MonitoringPolicy policy, boolean op, boolean monitoredPermission,
+            boolean bypassCommands, boolean bypassCustomResponses, boolean bypassCreative,
+            boolean bypassGamemode, long routePermissions, long expiresAt) {
+
+        public ActorType actorType() {
+            if (op) {
+                return ActorType.OP;
+            }
+            return monitoredPermission ? ActorType.PERMISSION : ActorType.NORMAL;
+        }
+
+        /**
+         * Whether this player is monitored through the ops or permissions setting.
+         */
+        public boolean isMonitored() {
+            return (policy.opsMonitoring() && op) || (policy.permissionMonitoring() && monitoredPermission);
+        }
+    }
+
+    public PlayerProfile get(Player player, MonitoringPolicy policy) {
+        PlayerProfile profile = profiles.get(player.getUniqueId());
+        if (profile != null && profile.policy() == policy && profile.op() == player.isOp()
+                && (profile.expiresAt() == 0 || System.currentTimeMillis() < profile.expiresAt())) {
+            return profile;
+        }
+
+        profile = compute(player, policy);
+        profiles.put(player.getUniqueId(), profile);
+        return profile;
+    }
+
+    public void invalidate(UUID playerUuid) {
+        profiles.remove(playerUuid);
+    }
+
+    private static PlayerProfile compute(Player player, MonitoringPolicy policy) {
+        long ttl = policy.profileCacheTtlMillis();
+        return new PlayerProfile(policy,
+                player.isOp(),
+                policy.hasMonitoredPermission(player),
+                player.hasPermission("adminwatchdog.bypass.commands"),
+                player.hasPermission("adminwatchdog.bypass.customresponses"),
+                player.hasPermission("adminwatchdog.bypass.creative"),
+                player.hasPermission("adminwatchdog.bypass.gamemode"),
+                policy.router().permissionBits(player),
+                ttl > 0 ? System.currentTimeMillis() + ttl : 0L);
+    }
+}
@@ -0,0 +1,305 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file that rolls over daily (when the name contains %date%) and when it grows past a size limit.
+ * Only the owning writer thread calls {@link #write(ByteBuffer)}; compression and pruning of rotated
+ * segments run on a separate background thread so a rollover never waits on disk-heavy work.
+ */
+public final class RollingLogFile {
+
+    private static final String DATE_PLACEHOLDER = "%date%";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private final AdminWatchdog plugin;
+    private final File directory;
+    private final String fileNameFormat;
+    private final String rotatedPrefix;
+    private final String rotatedSuffix;
+    private final long maxFileSizeBytes;
+    private final int keepOldLogs;
+    private final boolean compressOldLogs;
+    private final ExecutorService housekeeper = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AdminWatchdog-LogHousekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Consumer<File> rotationListener;
+    private volatile Consumer<File> removalListener;
+    private FileChannel channel;
+    private volatile File activeFile;
+    private long activeSize;
+    private long nextRolloverMillis;
+
+    public RollingLogFile(AdminWatchdog plugin, File directory, String fileNameFormat, int maxFileSizeMb,
+            int keepOldLogs, boolean compressOldLogs) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.fileNameFormat = fileNameFormat;
+        this.maxFileSizeBytes = maxFileSizeMb > 0 ? maxFileSizeMb * BYTES_PER_MB : 0L;
+        this.keepOldLogs = Math.max(0, keepOldLogs);
+        this.compressOldLogs = compressOldLogs;
+
+        int dateIndex = fileNameFormat.indexOf(DATE_PLACEHOLDER);
+        if (dateIndex >= 0) {
+            this.rotatedPrefix = fileNameFormat.substring(0, dateIndex);
+            this.rotatedSuffix = fileNameFormat.substring(dateIndex + DATE_PLACEHOLDER.length());
+        } else {
+            this.rotatedPrefix = stem(fileNameFormat);
+            this.rotatedSuffix = extension(fileNameFormat);
+        }
+    }
+
+    public void open() throws IOException {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        openActive(System.currentTimeMillis());
+        housekeeper.execute(this::compressLeftoverSegments);
+    }
+
+    /**
+     * Writes the buffer to the active segment, rolling over first if the day changed
+     * or the segment would exceed the configured size.
+     */
+    public void write(ByteBuffer source) throws IOException {
+        rollIfNeeded(source.remaining());
+        while (source.hasRemaining()) {
+            activeSize += channel.write(source);
+        }
+    }
+
+    public void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    public File getActiveFile() {
+        return activeFile;
+    }
+
+    /**
+     * Called on the housekeeping thread with every segment that was rotated out, before it is compressed.
+     */
+    public void setRotationListener(Consumer<File> rotationListener) {
+        this.rotationListener = rotationListener;
+    }
+
+    /**
+     * Called on the housekeeping thread with a rotated segment just before it is compressed away or
+     * deleted, so readers can release it first.
+     */
+    public void setRemovalListener(Consumer<File> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Uncompressed segments, newest first, with the active segment at the head of the list.
+     */
+    public List<File> listSegments() {
+        File active = activeFile;
+        File[] rotated = directory.listFiles((dir, name) -> isRotatedSegment(name)
+                && !name.endsWith(GZIP_SUFFIX) && (active == null || !name.equals(active.getName())));
+
+        List<File> segments = new ArrayList<>();
+        if (active != null) {
+            segments.add(active);
+        }
+        if (rotated != null) {
+            Arrays.sort(rotated, Comparator.comparingLong(File::lastModified).reversed());
+            segments.addAll(Arrays.asList(rotated));
+        }
+        return segments;
+    }
+
+    public void close() throws IOException {
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            housekeeper.shutdown();
+            try {
+                housekeeper.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void rollIfNeeded(int incomingBytes) throws IOException {
+        long now = System.currentTimeMillis();
+        if (now >= nextRolloverMillis) {
+            File previous = activeFile;
+            closeActive();
+            openActive(now);
+            if (!previous.equals(activeFile)) {
+                scheduleHousekeeping(previous);
+            }
+            return;
+        }
+
+        if (maxFileSizeBytes > 0 && activeSize > 0 && activeSize + incomingBytes > maxFileSizeBytes) {
+            closeActive();
+            File rotated = nextRotatedName(activeFile);
+            Files.move(activeFile.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            openActive(now);
+            scheduleHousekeeping(rotated);
+        }
+    }
+
+    private void openActive(long now) throws IOException {
+        LocalDate today = Instant.ofEpochMilli(now).atZone(ZoneId.systemDefault()).toLocalDate();
+        activeFile = new File(directory, fileNameFormat.replace(DATE_PLACEHOLDER, today.format(DATE_FORMAT)));
+        channel = FileChannel.open(activeFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSize = channel.size();
+        nextRolloverMillis = fileNameFormat.contains(DATE_PLACEHOLDER)
+                ? today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : Long.MAX_VALUE;
+    }
+
+    private void closeActive() throws IOException {
+        channel.force(false);
+        channel.close();
+        channel = null;
+    }
+
+    private File nextRotatedName(File file) {
+        String name = file.getName();
+        String stem = stem(name);
+        String extension = extension(name);
+
+        int index = 1;
+        File candidate;
+        do {
+            String rotatedName = stem + "." + index++ + extension;
+            candidate = new File(directory, rotatedName);
+        } while (candidate.exists() || new File(directory, candidate.getName() + GZIP_SUFFIX).exists());
+        return candidate;
+    }
+
+    private void scheduleHousekeeping(File rotated) {
+        housekeeper.execute(() -> {
+            Consumer<File> listener = rotationListener;
+            if (listener != null) {
+                listener.accept(rotated);
+            }
+            if (compressOldLogs) {
+                compress(rotated);
+            }
+            pruneOldLogs();
+        });
+    }
+
+    private void compress(File source) {
+        File target = new File(source.getParentFile(), source.getName() + GZIP_SUFFIX);
+        try (InputStream in = Files.newInputStream(source.toPath());
+                OutputStream out = new GZIPOutputStream(Files.newOutputStream(target.toPath()))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to compress rotated log " + source.getName() + ": " + e.getMessage());
+            target.delete();
+            return;
+        }
+
+        notifyRemoval(source);
+        if (!source.delete()) {
+            plugin.getLogger().warning("Failed to delete rotated log after compression: " + source.getName());
+        }
+    }
+
+    /**
+     * Segments rotated while the server was offline (e.g. the previous day's file) are
+     * compressed and pruned on startup.
+     */
+    private void compressLeftoverSegments() {
+        if (compressOldLogs) {
+            File active = activeFile;
+            File[] leftovers = directory.listFiles((dir, name) -> isRotatedSegment(name)
+                    && !name.endsWith(GZIP_SUFFIX) && !name.equals(active.getName()));
+            if (leftovers != null) {
+                for (File leftover : leftovers) {
+                    compress(leftover);
+                }
+            }
+        }
+        pruneOldLogs();
+    }
+
+    /**
+     * Deletes the oldest rotated segments so at most keep-old-logs remain next to the active file.
+     */
+    private void pruneOldLogs() {
+        File active = activeFile;
+        File[] rotated = directory.listFiles((dir, name) -> isRotatedSegment(name)
+                && (active == null || !name.equals(active.getName())));
+        if (rotated == null || rotated.length <= keepOldLogs) {
+            return;
+        }
+
+        Arrays.sort(rotated, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = keepOldLogs; i < rotated.length; i++) {
+            notifyRemoval(rotated[i]);
+            AuditSegmentIndex.indexFileFor(rotated[i]).delete();
+            if (!rotated[i].delete()) {
+                plugin.getLogger().warning("Failed to delete old log file: " + rotated[i].getName());
+            } else if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Deleted old log file: " + rotated[i].getName());
+            }
+        }
+    }
+
+    private void notifyRemoval(File segment) {
+        Consumer<File> listener = removalListener;
+        if (listener != null) {
+            listener.accept(segment);
+        }
+    }
+
+    private boolean isRotatedSegment(String name) {
+        if (name.endsWith(GZIP_SUFFIX)) {
+            name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        return name.startsWith(rotatedPrefix) && name.endsWith(rotatedSuffix)
+                && name.length() > rotatedPrefix.length() + rotatedSuffix.length();
+    }
+
+    private static String stem(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+}
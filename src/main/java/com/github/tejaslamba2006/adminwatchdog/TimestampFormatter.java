@@ -0,0 +1,66 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats event timestamps with the configured {@code general.time-format}. The pattern is
+ * compiled once per reload, and the last formatted second is memoized in a lock-free holder,
+ * so a burst of events within the same second formats the time only once.
+ * Patterns with sub-second fields are formatted on every call.
+ */
+public final class TimestampFormatter {
+
+    public static final String DEFAULT_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final DateTimeFormatter formatter;
+    private final boolean memoize;
+    private volatile Formatted last = new Formatted(Long.MIN_VALUE, "");
+
+    private record Formatted(long epochSecond, String text) {
+    }
+
+    private TimestampFormatter(DateTimeFormatter formatter, boolean memoize) {
+        this.formatter = formatter;
+        this.memoize = memoize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static TimestampFormatter of(String pattern, ZoneId zone) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern).withZone(zone);
+        return new TimestampFormatter(formatter, !hasSubSecondField(pattern));
+    }
+
+    private static boolean hasSubSecondField(String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == 'S' || c == 'n' || c == 'N' || c == 'A')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String format(long epochMillis) {
+        if (!memoize) {
+            return formatter.format(Instant.ofEpochMilli(epochMillis));
+        }
+
+        long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        Formatted cached = last;
+        if (cached.epochSecond() == epochSecond) {
+            return cached.text();
+        }
+
+        // Racing threads may both format the same second; either result is correct
+        String text = formatter.format(Instant.ofEpochSecond(epochSecond));
+        last = new Formatted(epochSecond, text);
+        return text;
+    }
+}
@@ -8,12 +8,10 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
@@ -22,8 +20,6 @@ public final class UpdateChecker {
     private static final String DEFAULT_REPO = "tejaslamba2006/AdminWatchdog";
     private static final String GITHUB_API_URL = "https://api.github.com/repos/%s/releases/latest";
     private static final long STARTUP_DELAY_TICKS = 100L;
-    private static final int CONNECTION_TIMEOUT = 5000;
-    private static final int READ_TIMEOUT = 10000;
 
     private final AdminWatchdog plugin;
     private final String githubRepo;
@@ -71,7 +67,7 @@ public final class UpdateChecker {
                 return new UpdateResult(false, currentVersion, currentVersion, null,
                         "Failed to check: " + e.getMessage());
             }
-        });
+        }, plugin.getHttpTransport().executor());
     }
 
     /**
@@ -112,28 +108,27 @@ public final class UpdateChecker {
     private UpdateResult performUpdateCheck() throws IOException {
         String repoUrl = String.format(GITHUB_API_URL, githubRepo.isEmpty() ? DEFAULT_REPO : githubRepo);
 
-        URL url = URI.create(repoUrl).toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setRequestProperty("Accept", "application/vnd.github.v3+json");
-        connection.setRequestProperty("User-Agent", "AdminWatchdog-UpdateChecker/1.0");
-        connection.setConnectTimeout(CONNECTION_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(repoUrl))
+                .timeout(HttpTransport.REQUEST_TIMEOUT)
+                .header("Accept", "application/vnd.github.v3+json")
+                .header("User-Agent", "AdminWatchdog-UpdateChecker/1.0")
+                .GET()
+                .build();
 
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("GitHub API returned response code: " + responseCode);
+        HttpResponse<String> response;
+        try {
+            response = plugin.getHttpTransport().client().send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Update check interrupted", e);
         }
 
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
+        int responseCode = response.statusCode();
+        if (responseCode != 200) {
+            throw new IOException("GitHub API returned response code: " + responseCode);
         }
 
-        JsonObject json = JsonParser.parseString(response.toString()).getAsJsonObject();
+        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
 
         String fetchedLatestVersion = json.get("tag_name").getAsString();
         if (fetchedLatestVersion.startsWith("v")) {
@@ -0,0 +1,334 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a collector and its forwarders over loopback TCP against a headless plugin and a real
+ * {@link AuditPipeline}.
+ */
+class AuditCollectorTest {
+
+    private static final String SECRET = "s3cret";
+    private static final long TIMEOUT_MILLIS = 15_000L;
+    // Magic, version and nonce, then the handshake status and last acknowledged batch
+    private static final int HANDSHAKE_REPLY_BYTES = 4 + 1 + AuditNetwork.NONCE_BYTES + 1 + 8;
+
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final List<AuditForwarder> forwarders = new ArrayList<>();
+    private final List<Closeable> closeables = new ArrayList<>();
+    private AuditPipeline pipeline;
+    private AuditCollector collector;
+    private InetSocketAddress collectorAddress;
+    private AdminWatchdog plugin;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        plugin = Mockito.mock(AdminWatchdog.class);
+        ConfigManager configManager = Mockito.mock(ConfigManager.class);
+        Mockito.when(configManager.getEventQueueCapacity()).thenReturn(1024);
+        Mockito.when(plugin.getConfigManager()).thenReturn(configManager);
+        Mockito.when(plugin.getLogger()).thenReturn(Logger.getLogger("AdminWatchdog"));
+        pipeline = new AuditPipeline(plugin);
+        Mockito.when(plugin.getAuditPipeline()).thenReturn(pipeline);
+        pipeline.start();
+
+        collectorAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), freePort());
+        collector = new AuditCollector(plugin, collectorAddress, SECRET,
+                (server, event) -> received.add(server + ":" + event.command()));
+        collector.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (AuditForwarder forwarder : forwarders) {
+            forwarder.shutdown();
+        }
+        collector.shutdown();
+        pipeline.shutdown();
+        for (Closeable closeable : closeables) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void eventsArriveExactlyOnceWhenTheAckIsLost() throws Exception {
+        AckDroppingProxy proxy = new AckDroppingProxy(collectorAddress);
+        closeables.add(proxy);
+        AuditForwarder forwarder = forwarder(proxy.address(), "lobby");
+
+        int events = 500;
+        for (int i = 0; i < events; i++) {
+            assertTrue(forwarder.forward(new AuditEvent.ConsoleCommand(i, "CONSOLE", "say " + i)));
+        }
+        awaitTrue(() -> received.size() >= events, "all events to arrive");
+
+        // Batches of one server arrive in order, so a resent batch would show up before this one
+        forwarder.forward(new AuditEvent.ConsoleCommand(events, "CONSOLE", "last"));
+        awaitTrue(() -> received.contains("lobby:last"), "the last event to arrive");
+
+        assertTrue(proxy.cut(), "the proxy never cut a connection before its ack");
+        assertTrue(proxy.connections() >= 2, "the forwarder did not reconnect");
+        List<String> snapshot = new ArrayList<>(received);
+        assertEquals(events + 1, snapshot.size());
+        assertEquals(events + 1, new HashSet<>(snapshot).size());
+        assertEquals("lobby:say 0", snapshot.get(0));
+        assertEquals("lobby:say " + (events - 1), snapshot.get(events - 1));
+    }
+
+    @Test
+    void malformedBatchIsSettledAndTheConnectionKeepsWorking() throws IOException {
+        try (Socket socket = connect()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            assertEquals(AuditNetwork.STATUS_OK, handshake(in, out, "raw", 7L));
+
+            // Three events announced, but the records hold a length prefix that runs past the end
+            sendBatch(out, 1L, 3, new byte[] { 0, 0, 0, 2, 1, 2, 0, 0, 0, 9 });
+            assertEquals(AuditNetwork.STATUS_MALFORMED, in.readUnsignedByte());
+            assertEquals(1L, in.readLong());
+
+            sendBatch(out, 2L, 0, new byte[0]);
+            assertEquals(AuditNetwork.STATUS_OK, in.readUnsignedByte());
+            assertEquals(2L, in.readLong());
+        }
+        assertEquals(1L, collector.getMalformedBatches());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void secondServerWithTheSameNameIsRefused() throws IOException {
+        try (Socket first = connect(); Socket second = connect()) {
+            DataInputStream firstIn = new DataInputStream(new BufferedInputStream(first.getInputStream()));
+            DataOutputStream firstOut = new DataOutputStream(new BufferedOutputStream(first.getOutputStream()));
+            assertEquals(AuditNetwork.STATUS_OK, handshake(firstIn, firstOut, "lobby", 1L));
+
+            DataInputStream secondIn = new DataInputStream(new BufferedInputStream(second.getInputStream()));
+            DataOutputStream secondOut = new DataOutputStream(new BufferedOutputStream(second.getOutputStream()));
+            assertEquals(AuditNetwork.STATUS_DUPLICATE_SERVER, handshake(secondIn, secondOut, "lobby", 2L));
+        }
+        assertEquals(1L, collector.getRejectedConnections());
+    }
+
+    @Test
+    void wrongSecretIsRejected() throws IOException {
+        try (Socket socket = connect()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            AuditNetwork.readHeader(in);
+            byte[] nonce = new byte[AuditNetwork.NONCE_BYTES];
+            in.readFully(nonce);
+            AuditNetwork.writeHeader(out);
+            out.writeUTF("lobby");
+            out.writeLong(1L);
+            out.write(AuditNetwork.sign("wrong", nonce, "lobby", 1L));
+            out.flush();
+            assertEquals(AuditNetwork.STATUS_REJECTED, in.readUnsignedByte());
+        }
+    }
+
+    @Test
+    void silentConnectionIsClosedAfterTheHandshakeTimeout() throws Exception {
+        try (Socket socket = connect()) {
+            socket.setSoTimeout((int) TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            AuditNetwork.readHeader(in);
+            in.readFully(new byte[AuditNetwork.NONCE_BYTES]);
+
+            long start = System.currentTimeMillis();
+            int read;
+            try {
+                read = in.read();
+            } catch (IOException e) {
+                // A reset is as good as an orderly close
+                read = -1;
+            }
+            assertEquals(-1, read);
+            assertTrue(System.currentTimeMillis() - start < TIMEOUT_MILLIS);
+        }
+        awaitTrue(() -> collector.getConnectionCount() == 0, "the connection to be released");
+    }
+
+    private AuditForwarder forwarder(InetSocketAddress address, String serverName) {
+        AuditForwarder forwarder = new AuditForwarder(plugin, address, serverName, SECRET, 4096);
+        forwarders.add(forwarder);
+        forwarder.start();
+        return forwarder;
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(collectorAddress.getAddress(), collectorAddress.getPort());
+    }
+
+    /**
+     * Authenticates as a forwarder.
+     *
+     * @return the status the collector answered with
+     */
+    private static int handshake(DataInputStream in, DataOutputStream out, String server, long session)
+            throws IOException {
+        AuditNetwork.readHeader(in);
+        byte[] nonce = new byte[AuditNetwork.NONCE_BYTES];
+        in.readFully(nonce);
+        AuditNetwork.writeHeader(out);
+        out.writeUTF(server);
+        out.writeLong(session);
+        out.write(AuditNetwork.sign(SECRET, nonce, server, session));
+        out.flush();
+
+        int status = in.readUnsignedByte();
+        in.readLong();
+        return status;
+    }
+
+    private static void sendBatch(DataOutputStream out, long batch, int events, byte[] records)
+            throws IOException {
+        out.writeLong(batch);
+        out.writeInt(events);
+        out.writeInt(records.length);
+        out.write(records);
+        out.flush();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new AssertionError("Timed out waiting for " + what);
+            }
+            Thread.sleep(20L);
+        }
+    }
+
+    /**
+     * Relays forwarder connections to the collector. The first connection is closed as soon as the
+     * collector starts acknowledging a batch, after the batch has been processed but before the
+     * forwarder hears of it; later connections are relayed untouched.
+     */
+    private static final class AckDroppingProxy implements Closeable {
+
+        private final InetSocketAddress upstream;
+        private final ServerSocket listener;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicBoolean cut = new AtomicBoolean();
+        private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+        AckDroppingProxy(InetSocketAddress upstream) throws IOException {
+            this.upstream = upstream;
+            this.listener = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+            Thread acceptThread = new Thread(this::acceptLoop, "AckDroppingProxy");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        InetSocketAddress address() {
+            return new InetSocketAddress(listener.getInetAddress(), listener.getLocalPort());
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        boolean cut() {
+            return cut.get();
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+
+        private void acceptLoop() {
+            while (!listener.isClosed()) {
+                try {
+                    Socket client = listener.accept();
+                    Socket server = new Socket(upstream.getAddress(), upstream.getPort());
+                    sockets.add(client);
+                    sockets.add(server);
+                    boolean first = connections.incrementAndGet() == 1;
+                    relay(client, server, Long.MAX_VALUE);
+                    relay(server, client, first ? HANDSHAKE_REPLY_BYTES : Long.MAX_VALUE);
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copies one direction of a connection, closing both sockets once {@code limit} bytes have
+         * gone through and more arrive.
+         */
+        private void relay(Socket from, Socket to, long limit) {
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[8192];
+                long copied = 0;
+                try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        if (copied + read > limit) {
+                            out.write(buffer, 0, (int) (limit - copied));
+                            out.flush();
+                            cut.set(true);
+                            break;
+                        }
+                        out.write(buffer, 0, read);
+                        out.flush();
+                        copied += read;
+                    }
+                } catch (IOException e) {
+                    // The other direction closed the pair
+                } finally {
+                    closeQuietly(from);
+                    closeQuietly(to);
+                }
+            }, "AckDroppingProxy-Relay");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.tejaslamba2006.adminwatchdog;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends through a {@link DiscordDispatcher} to a local HTTP server standing in for the webhook.
+ */
+class DiscordDispatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 15_000L;
+
+    private record Request(long receivedAt, String body) {
+    }
+
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private DiscordDispatcher dispatcher;
+    private volatile ToIntFunction<String> responder = body -> 204;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/webhook", this::handle);
+        server.start();
+
+        URI webhook = URI.create("http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/webhook");
+        dispatcher = new DiscordDispatcher(Logger.getLogger("AdminWatchdog"), "Test", webhook,
+                new DiscordDispatcher.Settings(100, 2), HttpClient.newHttpClient(),
+                DiscordDispatcher.memoryBacklog(100), new LatencyRecorder("Test webhook"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void rateLimitedRequestIsSentAgainAfterRetryAfter() throws InterruptedException {
+        responder = body -> requests.size() == 1 ? 429 : 204;
+
+        dispatcher.enqueueText("hello");
+        dispatcher.start();
+        awaitTrue(() -> dispatcher.getDeliveredMessages() == 1, "the message to be delivered");
+
+        assertEquals(2, requests.size());
+        assertEquals(1L, dispatcher.getRateLimited());
+        assertEquals(0L, dispatcher.getFailedMessages());
+        assertTrue(requests.get(1).receivedAt() - requests.get(0).receivedAt() >= 900L,
+                "the retry did not wait for Retry-After");
+    }
+
+    @Test
+    void embedBatchesStayWithinTheCombinedTextLimit() throws InterruptedException {
+        // Three of these exceed Discord's 6000 characters across the embeds of one message
+        String text = "x".repeat(2300);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(dispatcher.enqueueEmbed("{\"description\":\"" + text + "\"}"));
+        }
+        dispatcher.start();
+        awaitTrue(() -> dispatcher.getDeliveredMessages() == 6, "all embeds to be delivered");
+
+        assertEquals(3, requests.size());
+        for (Request request : requests) {
+            assertEquals(2, embeds(request.body()));
+        }
+    }
+
+    @Test
+    void rejectedBatchIsSentAgainOneMessageAtATime() throws InterruptedException {
+        // Discord answers 400 for the whole request when it finds a limit the batching did not foresee
+        responder = body -> embeds(body) > 1 || body.contains("bad") ? 400 : 204;
+
+        dispatcher.enqueueEmbed("{\"title\":\"first\"}");
+        dispatcher.enqueueEmbed("{\"title\":\"bad\"}");
+        dispatcher.enqueueEmbed("{\"title\":\"third\"}");
+        dispatcher.start();
+        awaitTrue(() -> dispatcher.getDeliveredMessages() + dispatcher.getFailedMessages() == 3,
+                "every embed to be settled");
+
+        assertEquals(4, requests.size());
+        assertEquals(3, embeds(requests.get(0).body()));
+        assertEquals(2L, dispatcher.getDeliveredMessages());
+        assertEquals(1L, dispatcher.getFailedMessages());
+        assertEquals(0L, dispatcher.getRetries());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Request(System.currentTimeMillis(), body));
+        int status = responder.applyAsInt(body);
+        if (status == 429) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static int embeds(String body) {
+        int count = 0;
+        for (int i = body.indexOf("{\"", 1); i >= 0; i = body.indexOf("{\"", i + 1)) {
+            count++;
+        }
+        // The allowed_mentions object is not an embed
+        return count - 1;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new AssertionError("Timed out waiting for " + what);
+            }
+            Thread.sleep(20L);
+        }
+    }
+}